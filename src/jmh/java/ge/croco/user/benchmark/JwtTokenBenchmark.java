@@ -0,0 +1,70 @@
+package ge.croco.user.benchmark;
+
+import ge.croco.user.domain.CustomUserDetails;
+import ge.croco.user.security.JwtTokenUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares token generation and verification with the key derived and the parser built per call (the previous
+ * behaviour) against the cached signing context in {@link JwtTokenUtil}.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtTokenBenchmark {
+
+    private static final String SECRET = "5PLwtPwpfCqxNQQmpwp2NBoRFru5C1b1taijGkWuSw5kGd6gbgcVj7b7e0CPJ1UQBRK2t/+qChLXRSaf/l0Ulg==";
+
+    private JwtTokenUtil jwtTokenUtil;
+    private CustomUserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenUtil = new JwtTokenUtil(SECRET, 1800000);
+        userDetails = new CustomUserDetails(1L, "benchmark", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = jwtTokenUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public Claims parseRebuildingKeyAndParser() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public String generateRebuildingKey() {
+        return Jwts.builder()
+                .claim("authorities", List.of("ROLE_USER"))
+                .claim("userId", userDetails.getId())
+                .setSubject(userDetails.getUsername())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 1800000))
+                .signWith(Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET)), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    @Benchmark
+    public Claims parseWithCachedParser() {
+        return jwtTokenUtil.extractAllClaims(token);
+    }
+
+    @Benchmark
+    public String generateWithCachedKey() {
+        return jwtTokenUtil.generateToken(userDetails);
+    }
+}
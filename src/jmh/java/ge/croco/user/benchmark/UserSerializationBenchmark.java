@@ -0,0 +1,84 @@
+package ge.croco.user.benchmark;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.map.IMap;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+import ge.croco.user.cache.CachedUser;
+import ge.croco.user.config.CacheConfig;
+import ge.croco.user.enums.Role;
+import ge.croco.user.model.UserDetails;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the users cache entry in zero-config Compact (reflective, roles as a set of enums, the
+ * previous behaviour) against the explicit schemas from {@link CacheConfig#registerCompactSerializers}.
+ * The serialized size is printed once per trial.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserSerializationBenchmark {
+
+    @Param({"reflective", "explicit"})
+    public String format;
+
+    private HazelcastInstance hazelcastInstance;
+    private SerializationService serializationService;
+    private IMap<Long, CachedUser> users;
+    private CachedUser entry;
+    private Data serialized;
+
+    @Setup
+    public void setUp() {
+        Config config = new Config().setClusterName("serialization-benchmark-" + format);
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getAutoDetectionConfig().setEnabled(false);
+        if ("explicit".equals(format)) {
+            CacheConfig.registerCompactSerializers(config.getSerializationConfig());
+        }
+        hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+        serializationService = ((SerializationServiceSupport) hazelcastInstance).getSerializationService();
+        users = hazelcastInstance.getMap(CacheConfig.USER_CACHE + "-benchmark"); // No near cache, every get deserializes
+
+        UserDetails user = new UserDetails(1L, "benchmark", "benchmark@example.com", EnumSet.of(Role.USER, Role.MODERATOR), 3L);
+        entry = new CachedUser(user, Long.MAX_VALUE, 5);
+        users.set(1L, entry); // Registers the schema before measuring
+        serialized = serializationService.toData(entry);
+        System.out.printf("%n%s serialized size: %d bytes%n", format, serialized.totalSize());
+    }
+
+    @TearDown
+    public void tearDown() {
+        hazelcastInstance.shutdown();
+    }
+
+    @Benchmark
+    public Data serialize() {
+        return serializationService.toData(entry);
+    }
+
+    @Benchmark
+    public CachedUser deserialize() {
+        return serializationService.toObject(serialized);
+    }
+
+    @Benchmark
+    public void put() {
+        users.set(1L, entry);
+    }
+
+    @Benchmark
+    public CachedUser get() {
+        return users.get(1L);
+    }
+}
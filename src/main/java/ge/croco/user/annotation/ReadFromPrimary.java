@@ -0,0 +1,14 @@
+package ge.croco.user.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reads made by the annotated method go to the primary even inside read-only transactions. For reads whose
+ * result outlives the request, e.g. cache fills and authentication, where replica lag would stick around.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadFromPrimary {}
@@ -16,4 +16,5 @@ public @interface ValidPassword {
     String message() default "Invalid password!";
     Class<?>[] groups() default {};
     Class<? extends Payload>[] payload() default {};
-}
\ No newline at end of file
+    boolean optional() default false; // Accept null, e.g. for partial updates
+}
@@ -40,7 +40,7 @@ public class LoggingAspect {
                     .addDeserializer(LocalDate.class, new LocalDateDeserializer(DATE_FORMATTER))
             );
 
-    private static final Set<String> SENSITIVE_FIELDS = Set.of("authorization", "password", "token");
+    private static final Set<String> SENSITIVE_FIELDS = Set.of("authorization", "password", "token", "refreshToken");
 
     @Pointcut("@within(org.springframework.web.bind.annotation.RestController) && !@annotation(ge.croco.user.annotation.DontLog)")
     private void controller() {
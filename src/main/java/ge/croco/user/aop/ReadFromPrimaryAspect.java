@@ -0,0 +1,22 @@
+package ge.croco.user.aop;
+
+import ge.croco.user.config.ReadReplicaRoutingDataSource;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class ReadFromPrimaryAspect {
+
+    @Around("@annotation(ge.croco.user.annotation.ReadFromPrimary)")
+    protected Object readFromPrimary(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean alreadyOnPrimary = ReadReplicaRoutingDataSource.startPrimaryReads();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadReplicaRoutingDataSource.endPrimaryReads(alreadyOnPrimary);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ge.croco.user.cache;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tells the other members to drop L1 entries. A null key list means the whole cache.
+ * Sent with {@link CacheInvalidationSerializer}.
+ */
+public record CacheInvalidation(UUID origin, String cacheName, List<Object> keys) {
+}
@@ -0,0 +1,66 @@
+package ge.croco.user.cache;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compact schema for invalidation messages. Cache keys here are user ids and usernames, so they travel as
+ * typed arrays. A key of any other type turns the message into a full clear, which is never wrong, only wider.
+ */
+public class CacheInvalidationSerializer implements CompactSerializer<CacheInvalidation> {
+
+    @Override
+    public CacheInvalidation read(CompactReader reader) {
+        UUID origin = new UUID(reader.readInt64("originHigh"), reader.readInt64("originLow"));
+        String cacheName = reader.readString("cacheName");
+        if (reader.readBoolean("all")) {
+            return new CacheInvalidation(origin, cacheName, null);
+        }
+        List<Object> keys = new ArrayList<>();
+        for (long key : reader.readArrayOfInt64("longKeys")) {
+            keys.add(key);
+        }
+        keys.addAll(List.of(reader.readArrayOfString("stringKeys")));
+        return new CacheInvalidation(origin, cacheName, keys);
+    }
+
+    @Override
+    public void write(CompactWriter writer, CacheInvalidation invalidation) {
+        List<Long> longKeys = new ArrayList<>();
+        List<String> stringKeys = new ArrayList<>();
+        boolean all = invalidation.keys() == null;
+        if (!all) {
+            for (Object key : invalidation.keys()) {
+                if (key instanceof Long longKey) {
+                    longKeys.add(longKey);
+                } else if (key instanceof String stringKey) {
+                    stringKeys.add(stringKey);
+                } else {
+                    all = true;
+                    break;
+                }
+            }
+        }
+        writer.writeInt64("originHigh", invalidation.origin().getMostSignificantBits());
+        writer.writeInt64("originLow", invalidation.origin().getLeastSignificantBits());
+        writer.writeString("cacheName", invalidation.cacheName());
+        writer.writeBoolean("all", all);
+        writer.writeArrayOfInt64("longKeys", all ? new long[0] : longKeys.stream().mapToLong(Long::longValue).toArray());
+        writer.writeArrayOfString("stringKeys", all ? new String[0] : stringKeys.toArray(String[]::new));
+    }
+
+    @Override
+    public String getTypeName() {
+        return "cache-invalidation";
+    }
+
+    @Override
+    public Class<CacheInvalidation> getCompactClass() {
+        return CacheInvalidation.class;
+    }
+}
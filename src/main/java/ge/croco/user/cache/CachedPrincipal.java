@@ -0,0 +1,15 @@
+package ge.croco.user.cache;
+
+import ge.croco.user.enums.Role;
+import ge.croco.user.model.UserDetails;
+
+/**
+ * What the stateful token path needs of a user, cached by username. No password hash, logins read it from the
+ * primary. The version is the row version the entry was read or written at.
+ */
+public record CachedPrincipal(Long id, int roles, long version) {
+
+    public static CachedPrincipal of(UserDetails user) {
+        return new CachedPrincipal(user.getId(), Role.toMask(user.getRoles()), user.getVersion());
+    }
+}
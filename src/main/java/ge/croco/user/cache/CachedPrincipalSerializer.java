@@ -0,0 +1,34 @@
+package ge.croco.user.cache;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+public class CachedPrincipalSerializer implements CompactSerializer<CachedPrincipal> {
+
+    @Override
+    public CachedPrincipal read(CompactReader reader) {
+        return new CachedPrincipal(
+                reader.readInt64("id"),
+                reader.readInt32("roles"),
+                reader.readInt64("version")
+        );
+    }
+
+    @Override
+    public void write(CompactWriter writer, CachedPrincipal principal) {
+        writer.writeInt64("id", principal.id());
+        writer.writeInt32("roles", principal.roles());
+        writer.writeInt64("version", principal.version());
+    }
+
+    @Override
+    public String getTypeName() {
+        return "cached-principal";
+    }
+
+    @Override
+    public Class<CachedPrincipal> getCompactClass() {
+        return CachedPrincipal.class;
+    }
+}
@@ -0,0 +1,20 @@
+package ge.croco.user.cache;
+
+import ge.croco.user.model.UserDetails;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A cached user with its jittered expiry and how long it took to load, which sizes the early refresh window.
+ */
+public record CachedUser(UserDetails user, long expiresAt, long loadMillis) implements Expiring {
+
+    /**
+     * Probabilistic early expiration (XFetch): the closer the expiry and the slower the load, the more likely a
+     * reader refreshes now. Readers decide independently, so one of them usually refreshes before the rest miss.
+     */
+    public boolean shouldRefreshEarly(long now, double beta) {
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble(); // (0, 1], ln(0) is undefined
+        return now - loadMillis * beta * Math.log(random) >= expiresAt;
+    }
+}
@@ -0,0 +1,34 @@
+package ge.croco.user.cache;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+public class CachedUserSerializer implements CompactSerializer<CachedUser> {
+
+    @Override
+    public CachedUser read(CompactReader reader) {
+        return new CachedUser(
+                reader.readCompact("user"),
+                reader.readInt64("expiresAt"),
+                reader.readInt64("loadMillis")
+        );
+    }
+
+    @Override
+    public void write(CompactWriter writer, CachedUser entry) {
+        writer.writeCompact("user", entry.user());
+        writer.writeInt64("expiresAt", entry.expiresAt());
+        writer.writeInt64("loadMillis", entry.loadMillis());
+    }
+
+    @Override
+    public String getTypeName() {
+        return "cached-user";
+    }
+
+    @Override
+    public Class<CachedUser> getCompactClass() {
+        return CachedUser.class;
+    }
+}
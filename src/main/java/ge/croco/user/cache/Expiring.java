@@ -0,0 +1,17 @@
+package ge.croco.user.cache;
+
+/**
+ * A cached value that carries its own expiry. {@link TwoTierCache} writes it to L2 with a TTL ending at
+ * {@link #expiresAt()} instead of the map's default TTL.
+ */
+public interface Expiring {
+
+    /**
+     * Epoch millis after which the value must not be served.
+     */
+    long expiresAt();
+
+    default boolean isExpired(long now) {
+        return now >= expiresAt();
+    }
+}
@@ -0,0 +1,78 @@
+package ge.croco.user.cache;
+
+import ge.croco.user.config.CacheConfig;
+import ge.croco.user.model.UserDetails;
+import ge.croco.user.util.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Write-through access to the principals cache, keyed by username. Writers put the committed principal after
+ * commit and a tombstone under every username the write took away, readers only fill empty slots. So a reader
+ * that loaded the row before a write can never replace what the writer put, and a renamed or deleted username
+ * isn't filled again with the old row.
+ */
+@Component
+@RequiredArgsConstructor
+public class PrincipalCache {
+
+    private final CacheManager cacheManager;
+
+    /**
+     * A tombstoned username may have been taken again since, it is loaded without caching until the tombstone
+     * expires. Unknown users are not cached.
+     */
+    public Optional<CachedPrincipal> get(String username, Supplier<Optional<UserDetails>> loader) {
+        Cache.ValueWrapper cached = cache().get(username);
+        if (cached != null && cached.get() instanceof CachedPrincipal principal) {
+            return Optional.of(principal);
+        }
+        Optional<CachedPrincipal> loaded = loader.get().map(CachedPrincipal::of);
+        if (cached == null) {
+            loaded.ifPresent(principal -> cache().putIfAbsent(username, principal));
+        }
+        return loaded;
+    }
+
+    public void putAfterCommit(UserDetails user, String previousUsername) {
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        if (!previousUsername.equals(user.getUsername())) {
+            entries.put(previousUsername, Tombstone.INSTANCE);
+        }
+        entries.put(user.getUsername(), CachedPrincipal.of(user));
+        AfterCommit.run(() -> putAll(entries));
+    }
+
+    public void putAllAfterCommit(Collection<UserDetails> users) {
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        users.forEach(user -> entries.put(user.getUsername(), CachedPrincipal.of(user)));
+        AfterCommit.run(() -> putAll(entries));
+    }
+
+    public void tombstoneAllAfterCommit(Collection<String> usernames) {
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        usernames.forEach(username -> entries.put(username, Tombstone.INSTANCE));
+        AfterCommit.run(() -> putAll(entries));
+    }
+
+    private void putAll(Map<Object, Object> entries) {
+        Cache cache = cache();
+        if (cache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.putAll(entries);
+        } else {
+            entries.forEach(cache::put);
+        }
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.PRINCIPAL_CACHE);
+    }
+}
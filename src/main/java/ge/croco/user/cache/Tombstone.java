@@ -0,0 +1,8 @@
+package ge.croco.user.cache;
+
+/**
+ * Cached in place of a deleted entry, so a reader that loaded the row before the delete can't cache it again.
+ */
+public enum Tombstone {
+    INSTANCE
+}
@@ -0,0 +1,257 @@
+package ge.croco.user.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Caffeine L1 on every member in front of a shared Hazelcast L2. Writes and evictions go to L2 first, then drop
+ * the local L1 entry and broadcast the same to the other members, so no L1 keeps serving a value L2 has replaced.
+ * Fills through {@link #putIfAbsent} only store what the database already holds, they stay on this member.
+ * {@link Expiring} values are written to L2 with their own TTL.
+ */
+public class TwoTierCache extends AbstractValueAdaptingCache {
+
+    private static final String KEY_ATTRIBUTE = "__key";
+    private static final int PREDICATE_EVICTION_THRESHOLD = 256;
+
+    private final String name;
+    private final Cache<Object, Object> local;
+    private final org.springframework.cache.Cache remote;
+    private final Consumer<List<Object>> invalidationPublisher;
+
+    // Bumped on every invalidation, an L2 read only fills L1 when nothing was invalidated meanwhile
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+
+    public TwoTierCache(String name,
+                        Cache<Object, Object> local,
+                        org.springframework.cache.Cache remote,
+                        Consumer<List<Object>> invalidationPublisher,
+                        MeterRegistry meterRegistry) {
+        super(true);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+
+        this.localHits = tierCounter(meterRegistry, name, "l1", "hit");
+        this.localMisses = tierCounter(meterRegistry, name, "l1", "miss");
+        this.remoteHits = tierCounter(meterRegistry, name, "l2", "hit");
+        this.remoteMisses = tierCounter(meterRegistry, name, "l2", "miss");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        localMisses.increment();
+
+        long readGeneration = generation.get();
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+
+        Object storeValue = toStoreValue(wrapper.get());
+        fillLocal(key, storeValue, readGeneration);
+        return storeValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        long readGeneration = generation.get();
+        T value = remote.get(key, valueLoader);
+        fillLocal(key, toStoreValue(value), readGeneration);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        IMap<Object, Object> map = remoteMap();
+        if (map != null && value instanceof Expiring expiring) {
+            map.set(key, value, ttlMillis(expiring), TimeUnit.MILLISECONDS);
+        } else {
+            remote.put(key, value);
+        }
+        invalidate(List.of(key));
+    }
+
+    /**
+     * Fills an absent L2 entry. Another member's L1 can only hold the same committed state, every change to it
+     * was broadcast by its write, so a fill drops the L1 entry on this member without a broadcast.
+     */
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        IMap<Object, Object> map = remoteMap();
+        ValueWrapper existing;
+        if (map != null && value instanceof Expiring expiring) {
+            Object previous = map.putIfAbsent(key, value, ttlMillis(expiring), TimeUnit.MILLISECONDS);
+            existing = previous == null ? null : toValueWrapper(previous);
+        } else {
+            existing = remote.putIfAbsent(key, value);
+        }
+        if (existing == null) {
+            invalidateLocal(List.of(key));
+        }
+        return existing;
+    }
+
+    /**
+     * Replaces the L2 entry only while it still equals {@code expected}, so a refresh can't overwrite a
+     * concurrent write.
+     *
+     * @return whether the entry was replaced
+     */
+    public boolean replace(Object key, Object expected, Object value) {
+        IMap<Object, Object> map = remoteMap();
+        if (map == null) {
+            put(key, value);
+            return true;
+        }
+        if (!map.replace(key, expected, value)) {
+            return false;
+        }
+        if (value instanceof Expiring expiring) {
+            map.setTtl(key, ttlMillis(expiring), TimeUnit.MILLISECONDS); // replace keeps the old entry's TTL
+        }
+        invalidate(List.of(key));
+        return true;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        invalidate(List.of(key));
+    }
+
+    /**
+     * Evicts many keys with one broadcast. Few keys are removed one by one, pipelined, since that only touches
+     * their partitions. The key predicate scans every partition, so it only pays off for large batches.
+     */
+    public void evictAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        IMap<Object, Object> map = remoteMap();
+        if (map == null) {
+            keys.forEach(remote::evict);
+        } else if (keys.size() < PREDICATE_EVICTION_THRESHOLD) {
+            CompletableFuture.allOf(keys.stream()
+                    .map(key -> map.removeAsync(key).toCompletableFuture())
+                    .toArray(CompletableFuture[]::new)).join();
+        } else {
+            map.removeAll(Predicates.in(KEY_ATTRIBUTE, keys.toArray(Comparable[]::new)));
+        }
+        invalidate(new ArrayList<>(keys));
+    }
+
+    /**
+     * Writes many entries with one broadcast. Without per-entry TTLs that is one L2 call, {@link Expiring}
+     * values are pipelined as one async set each since IMap has no bulk write with TTLs.
+     */
+    public void putAll(Map<Object, Object> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        IMap<Object, Object> map = remoteMap();
+        if (map == null) {
+            entries.forEach(remote::put);
+        } else if (entries.values().stream().anyMatch(Expiring.class::isInstance)) {
+            CompletableFuture.allOf(entries.entrySet().stream()
+                    .map(entry -> entry.getValue() instanceof Expiring expiring
+                            ? map.setAsync(entry.getKey(), entry.getValue(), ttlMillis(expiring), TimeUnit.MILLISECONDS)
+                            : map.setAsync(entry.getKey(), entry.getValue()))
+                    .map(CompletionStage::toCompletableFuture)
+                    .toArray(CompletableFuture[]::new)).join();
+        } else {
+            map.putAll(entries);
+        }
+        invalidate(new ArrayList<>(entries.keySet()));
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        invalidate(null);
+    }
+
+    /**
+     * Drops L1 entries on this member only, for invalidations published by other members.
+     */
+    void invalidateLocal(List<Object> keys) {
+        generation.incrementAndGet();
+        if (keys == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidateAll(keys);
+        }
+    }
+
+    private void invalidate(List<Object> keys) {
+        invalidateLocal(keys);
+        invalidationPublisher.accept(keys);
+    }
+
+    @SuppressWarnings("unchecked")
+    private IMap<Object, Object> remoteMap() {
+        return remote.getNativeCache() instanceof IMap<?, ?> map ? (IMap<Object, Object>) map : null;
+    }
+
+    private static long ttlMillis(Expiring expiring) {
+        return Math.max(1, expiring.expiresAt() - System.currentTimeMillis());
+    }
+
+    private void fillLocal(Object key, Object storeValue, long readGeneration) {
+        if (storeValue != null && generation.get() == readGeneration) {
+            local.put(key, storeValue);
+        }
+    }
+
+    private static Counter tierCounter(MeterRegistry meterRegistry, String cacheName, String tier, String result) {
+        return Counter.builder("cache.tier.requests")
+                .description("Cache lookups per tier, L2 is only asked on an L1 miss")
+                .tag("cache", cacheName)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,84 @@
+package ge.croco.user.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps every cache of the Hazelcast cache manager in a {@link TwoTierCache}. Invalidations travel over one
+ * topic, each member ignores its own messages since it already dropped those entries.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager {
+
+    public static final String INVALIDATION_TOPIC = "cache-invalidations";
+
+    private final CacheManager remoteCacheManager;
+    private final ITopic<CacheInvalidation> invalidations;
+    private final UUID localMember;
+    private final MeterRegistry meterRegistry;
+    private final long localMaxSize;
+    private final Duration localTtl;
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager remoteCacheManager,
+                               HazelcastInstance hazelcastInstance,
+                               MeterRegistry meterRegistry,
+                               long localMaxSize,
+                               Duration localTtl) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidations = hazelcastInstance.getTopic(INVALIDATION_TOPIC);
+        this.localMember = hazelcastInstance.getCluster().getLocalMember().getUuid();
+        this.meterRegistry = meterRegistry;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = localTtl;
+
+        invalidations.addMessageListener(message -> onInvalidation(message.getMessageObject()));
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoTierCache createCache(String name) {
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            throw new IllegalStateException("No remote cache named " + name);
+        }
+        // The TTL bounds how long an L1 entry can outlive a lost invalidation
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .build();
+        return new TwoTierCache(name, local, remote,
+                keys -> invalidations.publish(new CacheInvalidation(localMember, name, keys)), meterRegistry);
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (localMember.equals(invalidation.origin())) {
+            return;
+        }
+        TwoTierCache cache = caches.get(invalidation.cacheName());
+        if (cache != null) {
+            cache.invalidateLocal(invalidation.keys());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package ge.croco.user.cache;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import ge.croco.user.config.CacheConfig;
+import ge.croco.user.model.UserDetails;
+import ge.croco.user.util.AfterCommit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Write-through access to the users cache. Writers put the committed state (or a tombstone) after commit,
+ * readers only fill empty slots, so a read that raced a write can never replace what the writer put.
+ * <p>
+ * A miss is loaded once per key across the cluster: callers on this member wait on one local load, and that
+ * load holds a Hazelcast lock on the key so the other members wait for its result instead of querying too.
+ * Entries get a jittered TTL and are refreshed early with a probability that grows towards their expiry, so
+ * hot keys neither expire together nor all at once.
+ */
+@Slf4j
+@Component
+public class UserCache {
+
+    public static final String LOAD_LOCKS = "users-loading";
+
+    private final CacheManager cacheManager;
+    private final IMap<Long, Boolean> loadLocks;
+    private final long ttlMillis;
+    private final double ttlJitter;
+    private final double earlyRefreshBeta;
+    private final long lockWaitMillis;
+    private final long lockLeaseMillis;
+
+    private final ConcurrentMap<Long, CompletableFuture<Optional<UserDetails>>> inFlight = new ConcurrentHashMap<>();
+
+    // Write-through entries weren't loaded, they size their early refresh window by the latest load instead
+    private final AtomicLong recentLoadMillis = new AtomicLong();
+
+    private final Counter localWaiters;
+    private final Counter clusterWaiters;
+    private final Counter earlyRefreshes;
+
+    public UserCache(CacheManager cacheManager,
+                     HazelcastInstance hazelcastInstance,
+                     MeterRegistry meterRegistry,
+                     @Value("${cache.users.ttl-seconds:1800}") long ttlSeconds,
+                     @Value("${cache.users.ttl-jitter:0.1}") double ttlJitter,
+                     @Value("${cache.users.early-refresh-beta:1.0}") double earlyRefreshBeta,
+                     @Value("${cache.users.load-lock.wait-ms:2000}") long lockWaitMillis,
+                     @Value("${cache.users.load-lock.lease-ms:40000}") long lockLeaseMillis) {
+        this.cacheManager = cacheManager;
+        this.loadLocks = hazelcastInstance.getMap(LOAD_LOCKS);
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.ttlJitter = ttlJitter;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.lockWaitMillis = lockWaitMillis;
+        this.lockLeaseMillis = lockLeaseMillis;
+
+        this.localWaiters = waiterCounter(meterRegistry, "local");
+        this.clusterWaiters = waiterCounter(meterRegistry, "cluster");
+        this.earlyRefreshes = Counter.builder("cache.refreshes.early")
+                .description("Entries reloaded before their expiry by probabilistic early refresh")
+                .tag("cache", CacheConfig.USER_CACHE)
+                .register(meterRegistry);
+    }
+
+    public Optional<UserDetails> get(Long id, Supplier<Optional<UserDetails>> loader) {
+        Cache.ValueWrapper cached = cache().get(id);
+        if (cached != null && cached.get() instanceof Tombstone) {
+            return Optional.empty();
+        }
+        if (cached != null && cached.get() instanceof CachedUser entry) {
+            long now = System.currentTimeMillis();
+            if (!entry.isExpired(now)) { // L1 may outlive the L2 entry by up to its own TTL
+                return entry.shouldRefreshEarly(now, earlyRefreshBeta)
+                        ? refreshEarly(id, entry, loader)
+                        : Optional.of(entry.user());
+            }
+        }
+        return loadOnce(id, loader);
+    }
+
+    public void putAfterCommit(UserDetails user) {
+        CachedUser entry = written(user);
+        AfterCommit.run(() -> cache().put(user.getId(), entry));
+    }
+
+    public void putAllAfterCommit(Collection<UserDetails> users) {
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        users.forEach(user -> entries.put(user.getId(), written(user)));
+        AfterCommit.run(() -> putAll(entries));
+    }
+
+    public void tombstoneAfterCommit(Long id) {
+        AfterCommit.run(() -> cache().put(id, Tombstone.INSTANCE));
+    }
+
+    public void tombstoneAllAfterCommit(Collection<Long> ids) {
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        ids.forEach(id -> entries.put(id, Tombstone.INSTANCE));
+        AfterCommit.run(() -> putAll(entries));
+    }
+
+    // Callers on this member share one load, only that one competes for the cluster lock
+    private Optional<UserDetails> loadOnce(Long id, Supplier<Optional<UserDetails>> loader) {
+        CompletableFuture<Optional<UserDetails>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<UserDetails>> running = inFlight.putIfAbsent(id, load);
+        if (running != null) {
+            localWaiters.increment();
+            return await(running);
+        }
+        try {
+            Optional<UserDetails> result = loadExclusively(id, loader);
+            load.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, load);
+        }
+    }
+
+    private Optional<UserDetails> loadExclusively(Long id, Supplier<Optional<UserDetails>> loader) {
+        boolean locked = lock(id, lockWaitMillis);
+        if (!locked) {
+            log.debug("Timed out waiting for the load lock of user {}, loading without it", id);
+        }
+        try {
+            if (locked) {
+                // Whoever held the lock before us has usually cached the user by now
+                Cache.ValueWrapper cached = cache().get(id);
+                if (cached != null && cached.get() instanceof Tombstone) {
+                    clusterWaiters.increment();
+                    return Optional.empty();
+                }
+                if (cached != null && cached.get() instanceof CachedUser entry && !entry.isExpired(System.currentTimeMillis())) {
+                    clusterWaiters.increment();
+                    return Optional.of(entry.user());
+                }
+            }
+            long start = System.nanoTime();
+            Optional<UserDetails> loaded = loader.get();
+            long loadMillis = elapsedMillis(start);
+            loaded.ifPresent(user -> cache().putIfAbsent(id, new CachedUser(user, expiresAt(), loadMillis)));
+            return loaded;
+        } finally {
+            if (locked) {
+                unlock(id);
+            }
+        }
+    }
+
+    // Only the caller that gets the lock right away refreshes, everyone else keeps reading the current entry
+    private Optional<UserDetails> refreshEarly(Long id, CachedUser current, Supplier<Optional<UserDetails>> loader) {
+        if (inFlight.containsKey(id) || !lock(id, 0)) {
+            return Optional.of(current.user());
+        }
+        try {
+            earlyRefreshes.increment();
+            long start = System.nanoTime();
+            Optional<UserDetails> loaded = loader.get();
+            long loadMillis = elapsedMillis(start);
+            loaded.ifPresent(user -> replace(id, current, new CachedUser(user, expiresAt(), loadMillis)));
+            return loaded;
+        } finally {
+            unlock(id);
+        }
+    }
+
+    private boolean lock(Long id, long waitMillis) {
+        try {
+            return loadLocks.tryLock(id, waitMillis, TimeUnit.MILLISECONDS, lockLeaseMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // A load that outlived the lease no longer owns the lock, its result is still good
+    private void unlock(Long id) {
+        try {
+            loadLocks.unlock(id);
+        } catch (IllegalMonitorStateException e) {
+            log.debug("Load lock of user {} was released by its lease before the load finished", id);
+        }
+    }
+
+    private static Optional<UserDetails> await(CompletableFuture<Optional<UserDetails>> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private CachedUser written(UserDetails user) {
+        return new CachedUser(user, expiresAt(), recentLoadMillis.get());
+    }
+
+    private long elapsedMillis(long startNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        recentLoadMillis.set(millis);
+        return millis;
+    }
+
+    private long expiresAt() {
+        double jitter = ttlJitter > 0 ? ThreadLocalRandom.current().nextDouble(-ttlJitter, ttlJitter) : 0;
+        return System.currentTimeMillis() + Math.round(ttlMillis * (1 + jitter));
+    }
+
+    private void replace(Long id, CachedUser expected, CachedUser entry) {
+        Cache cache = cache();
+        if (cache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.replace(id, expected, entry);
+        } else {
+            cache.put(id, entry);
+        }
+    }
+
+    private void putAll(Map<Object, Object> entries) {
+        Cache cache = cache();
+        if (cache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.putAll(entries);
+        } else {
+            entries.forEach(cache::put);
+        }
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.USER_CACHE);
+    }
+
+    private static Counter waiterCounter(MeterRegistry meterRegistry, String scope) {
+        return Counter.builder("cache.loads.coalesced")
+                .description("Callers that waited for another caller's load instead of querying the database")
+                .tag("cache", CacheConfig.USER_CACHE)
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+}
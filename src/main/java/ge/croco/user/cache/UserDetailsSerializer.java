@@ -0,0 +1,44 @@
+package ge.croco.user.cache;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+import ge.croco.user.enums.Role;
+import ge.croco.user.model.UserDetails;
+
+/**
+ * Compact schema for cached users, roles travel as the same bitmask the users table stores.
+ * Fields may be added later, read them only when {@code reader.getFieldKind(name)} says they are present.
+ */
+public class UserDetailsSerializer implements CompactSerializer<UserDetails> {
+
+    @Override
+    public UserDetails read(CompactReader reader) {
+        return new UserDetails(
+                reader.readNullableInt64("id"),
+                reader.readString("username"),
+                reader.readString("email"),
+                Role.fromMask(reader.readInt32("roles")),
+                reader.readNullableInt64("version")
+        );
+    }
+
+    @Override
+    public void write(CompactWriter writer, UserDetails user) {
+        writer.writeNullableInt64("id", user.getId());
+        writer.writeString("username", user.getUsername());
+        writer.writeString("email", user.getEmail());
+        writer.writeInt32("roles", Role.toMask(user.getRoles()));
+        writer.writeNullableInt64("version", user.getVersion());
+    }
+
+    @Override
+    public String getTypeName() {
+        return "user";
+    }
+
+    @Override
+    public Class<UserDetails> getCompactClass() {
+        return UserDetails.class;
+    }
+}
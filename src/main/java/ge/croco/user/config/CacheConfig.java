@@ -1,34 +1,112 @@
 package ge.croco.user.config;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionConfig;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.IndexConfig;
+import com.hazelcast.config.IndexType;
 import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizePolicy;
+import com.hazelcast.config.NearCacheConfig;
+import com.hazelcast.config.SerializationConfig;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.spring.cache.HazelcastCacheManager;
+import ge.croco.user.cache.CacheInvalidationSerializer;
+import ge.croco.user.cache.CachedPrincipalSerializer;
+import ge.croco.user.cache.CachedUserSerializer;
+import ge.croco.user.cache.TwoTierCacheManager;
+import ge.croco.user.cache.UserDetailsSerializer;
+import ge.croco.user.service.RefreshTokenService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.HazelcastCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @EnableCaching
 @Configuration
 public class CacheConfig {
 
     public static final String USER_CACHE = "users";
+    public static final String PRINCIPAL_CACHE = "principals";
+
+    private static final int PRINCIPAL_CACHE_TTL_SECONDS = 600; // Writes put through, the TTL mostly expires tombstones
 
+    /**
+     * Caffeine L1 on each member in front of the shared Hazelcast maps as L2.
+     */
     @Bean
-    public CacheManager cacheManager() {
-        return new HazelcastCacheManager(hazelcastInstance());
+    public CacheManager cacheManager(HazelcastInstance hazelcastInstance,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${cache.l1.max-size:10000}") long localMaxSize,
+                                     @Value("${cache.l1.ttl-seconds:60}") long localTtlSeconds) {
+        return new TwoTierCacheManager(new HazelcastCacheManager(hazelcastInstance), hazelcastInstance, meterRegistry,
+                localMaxSize, Duration.ofSeconds(localTtlSeconds));
     }
 
     @Bean
-    public HazelcastInstance hazelcastInstance() {
+    public HazelcastInstance hazelcastInstance(@Value("${cache.users.ttl-seconds:1800}") int usersTtlSeconds,
+                                               @Value("${cache.users.near-cache.max-size:10000}") int nearCacheMaxSize,
+                                               @Value("${cache.users.near-cache.eviction-policy:LRU}") EvictionPolicy nearCacheEvictionPolicy) {
         Config config = new Config();
+        registerCompactSerializers(config.getSerializationConfig());
 
         config.addMapConfig(new MapConfig()
                 .setName(USER_CACHE)
-                .setTimeToLiveSeconds(1800)); // 30 minute TTL
+                .setTimeToLiveSeconds(usersTtlSeconds) // Users carry their own jittered TTL, this one only applies to tombstones
+                .setNearCacheConfig(usersNearCache(usersTtlSeconds, nearCacheMaxSize, nearCacheEvictionPolicy)));
+        config.addMapConfig(new MapConfig()
+                .setName(PRINCIPAL_CACHE)
+                .setTimeToLiveSeconds(PRINCIPAL_CACHE_TTL_SECONDS));
+        // Revocation removes a user's sessions by userId on every user write, without the index that scans all
+        config.addMapConfig(new MapConfig()
+                .setName(RefreshTokenService.REFRESH_TOKENS)
+                .addIndexConfig(new IndexConfig(IndexType.HASH, "userId")));
 
         return Hazelcast.newHazelcastInstance(config);
     }
-}
\ No newline at end of file
+
+    /**
+     * Explicit Compact schemas for cached users, principals and invalidation messages, instead of zero-config
+     * reflection and Java serialization. Public so benchmarks can build members with the same serialization.
+     */
+    public static void registerCompactSerializers(SerializationConfig serializationConfig) {
+        serializationConfig.getCompactSerializationConfig()
+                .addSerializer(new UserDetailsSerializer())
+                .addSerializer(new CachedUserSerializer())
+                .addSerializer(new CachedPrincipalSerializer())
+                .addSerializer(new CacheInvalidationSerializer());
+    }
+
+    /**
+     * Cache metrics of the users map including near cache hits, misses and evictions (cache.near.*).
+     * Bound explicitly because the map is created lazily, after Boot registers metrics for existing caches.
+     */
+    @Bean
+    public MeterBinder usersCacheMetrics(HazelcastInstance hazelcastInstance) {
+        return registry -> HazelcastCacheMetrics.monitor(registry, hazelcastInstance.getMap(USER_CACHE));
+    }
+
+    /**
+     * Keeps deserialized copies of hot users on every member. Owners push invalidations on every write,
+     * and OBJECT format hands out the cached instance itself, so cached values must not be mutated.
+     */
+    private static NearCacheConfig usersNearCache(int ttlSeconds, int maxSize, EvictionPolicy evictionPolicy) {
+        return new NearCacheConfig(USER_CACHE)
+                .setInMemoryFormat(InMemoryFormat.OBJECT)
+                .setInvalidateOnChange(true)
+                .setCacheLocalEntries(true) // Owned entries are served from the near cache as well, skipping deserialization
+                .setTimeToLiveSeconds(ttlSeconds)
+                .setEvictionConfig(new EvictionConfig()
+                        .setEvictionPolicy(evictionPolicy)
+                        .setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT)
+                        .setSize(maxSize));
+    }
+}
@@ -0,0 +1,126 @@
+package ge.croco.user.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sends connections of read-only transactions to the replica and everything else to the primary.
+ * Must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the lookup
+ * happens on the first statement, after the transaction has been marked read-only.
+ * <p>
+ * Reads stay on the primary while the replica lags or its lag is unknown, inside methods marked
+ * {@link ge.croco.user.annotation.ReadFromPrimary} and, for a short window after a committed write, for the user
+ * who made it, so they always see their own changes.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Cache<String, Boolean> recentWriters;
+
+    private final Counter writeRoutes;
+    private final Counter readRoutes;
+    private final Counter lagFallbacks;
+    private final Counter primaryReads;
+    private final Counter stickyFallbacks;
+
+    public ReadReplicaRoutingDataSource(DataSource primary,
+                                        DataSource replica,
+                                        ReplicaLagMonitor lagMonitor,
+                                        Duration stickyWindow,
+                                        MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .build();
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+
+        this.writeRoutes = routeCounter(meterRegistry, PRIMARY, "write");
+        this.readRoutes = routeCounter(meterRegistry, REPLICA, "read");
+        this.lagFallbacks = routeCounter(meterRegistry, PRIMARY, "replica-lag");
+        this.primaryReads = routeCounter(meterRegistry, PRIMARY, "primary-read");
+        this.stickyFallbacks = routeCounter(meterRegistry, PRIMARY, "read-your-writes");
+    }
+
+    /**
+     * Sends reads on this thread to the primary until {@link #endPrimaryReads(boolean)}.
+     *
+     * @return whether they already went there, to pass on to {@link #endPrimaryReads(boolean)}
+     */
+    public static boolean startPrimaryReads() {
+        boolean alreadyOnPrimary = PRIMARY_READS.get() != null;
+        PRIMARY_READS.set(Boolean.TRUE);
+        return alreadyOnPrimary;
+    }
+
+    public static void endPrimaryReads(boolean alreadyOnPrimary) {
+        if (!alreadyOnPrimary) {
+            PRIMARY_READS.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writeRoutes.increment();
+            rememberWriteOnCommit(user);
+            return PRIMARY;
+        }
+        if (PRIMARY_READS.get() != null) {
+            primaryReads.increment();
+            return PRIMARY;
+        }
+        if (!lagMonitor.isAvailable()) {
+            lagFallbacks.increment();
+            return PRIMARY;
+        }
+        if (user != null && recentWriters.getIfPresent(user) != null) {
+            stickyFallbacks.increment();
+            return PRIMARY;
+        }
+        readRoutes.increment();
+        return REPLICA;
+    }
+
+    private void rememberWriteOnCommit(String user) {
+        if (user == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(user, Boolean.TRUE);
+            }
+        });
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !authentication.isAuthenticated() ? null : authentication.getName();
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder("datasource.routing")
+                .description("Connections handed out per target pool")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,70 @@
+package ge.croco.user.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Polls the replica for its replay lag. Reads fall back to the primary while the replica
+ * is behind by more than the allowed lag, can't be reached or can't tell how far behind it is.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // Zero on a server that isn't a standby or once everything received has been replayed. Null, so unknown,
+    // while the standby has no WAL receiver, since then it can't know how far the primary has moved on.
+    // The pid column is visible without pg_read_all_stats.
+    private static final String LAG_QUERY = """
+            select case
+                       when not pg_is_in_recovery() then 0
+                       when not exists (select 1 from pg_stat_wal_receiver where pid is not null) then null
+                       when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                       else extract(epoch from now() - pg_last_xact_replay_timestamp())
+                   end""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double maxLagSeconds;
+
+    private volatile double lagSeconds = Double.NaN; // Primary only until the first successful check
+    private volatile long checkedAtNanos = System.nanoTime();
+    private volatile boolean healthy;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, double maxLagSeconds, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.jdbcTemplate.setQueryTimeout(1);
+        this.maxLagSeconds = maxLagSeconds;
+
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replica replay lag in seconds, NaN while unreachable or unknown")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // The replica may have fallen further behind since the last check, e.g. while checks hang or stop
+    public boolean isAvailable() {
+        double sinceCheckSeconds = (System.nanoTime() - checkedAtNanos) / 1e9;
+        return lagSeconds + sinceCheckSeconds <= maxLagSeconds; // NaN compares false
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        try {
+            Double lag = jdbcTemplate.queryForObject(LAG_QUERY, Double.class);
+            lagSeconds = lag == null ? Double.NaN : lag;
+        } catch (Exception e) {
+            lagSeconds = Double.NaN;
+            log.debug("Replica lag check failed", e);
+        }
+        checkedAtNanos = System.nanoTime();
+
+        boolean nowHealthy = lagSeconds <= maxLagSeconds;
+        if (nowHealthy != healthy) {
+            log.warn("Replica {} for reads, lag {}s", nowHealthy ? "enabled" : "disabled", lagSeconds);
+        }
+        healthy = nowHealthy;
+    }
+}
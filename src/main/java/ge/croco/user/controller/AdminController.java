@@ -1,15 +1,35 @@
 package ge.croco.user.controller;
 
+import ge.croco.user.annotation.DontLog;
+import ge.croco.user.domain.CustomUserDetails;
+import ge.croco.user.enums.ExportFormat;
+import ge.croco.user.enums.ImportFormat;
+import ge.croco.user.enums.UserSort;
+import ge.croco.user.model.BulkDeleteRequest;
+import ge.croco.user.model.BulkOperationResult;
+import ge.croco.user.model.BulkRoleChangeRequest;
+import ge.croco.user.model.CursorPage;
+import ge.croco.user.model.ImportReport;
+import ge.croco.user.model.SecretRotationRequest;
 import ge.croco.user.model.UserDetails;
+import ge.croco.user.service.JwtSecretRotationService;
+import ge.croco.user.service.UserBulkService;
+import ge.croco.user.service.UserExportService;
+import ge.croco.user.service.UserImportService;
 import ge.croco.user.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseStatus;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -18,10 +38,73 @@ import java.util.List;
 public class AdminController {
 
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserBulkService userBulkService;
+    private final UserExportService userExportService;
+    private final JwtSecretRotationService jwtSecretRotationService;
 
     @GetMapping("/users")
     @ResponseStatus(HttpStatus.OK)
     public List<UserDetails> getAllUsers(Pageable pageable) {
         return userService.getUsers(pageable);
     }
+
+    @GetMapping("/users/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPage<UserDetails> scrollAllUsers(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "20") int size,
+                                                  @RequestParam(defaultValue = "ID") UserSort sort) {
+        return userService.getUsers(cursor, size, sort);
+    }
+
+    @GetMapping("/users/search")
+    @ResponseStatus(HttpStatus.OK)
+    public List<UserDetails> searchUsers(@RequestParam String q,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        return userService.searchUsers(q, limit);
+    }
+
+    @PostMapping("/users/bulk-delete")
+    @ResponseStatus(HttpStatus.OK)
+    public BulkOperationResult bulkDeleteUsers(@AuthenticationPrincipal CustomUserDetails caller,
+                                               @Valid @RequestBody BulkDeleteRequest request) {
+        return userBulkService.deleteUsers(request, caller.getId());
+    }
+
+    @PostMapping("/users/bulk-roles")
+    @ResponseStatus(HttpStatus.OK)
+    public BulkOperationResult bulkChangeRoles(@AuthenticationPrincipal CustomUserDetails caller,
+                                               @Valid @RequestBody BulkRoleChangeRequest request) {
+        return userBulkService.changeRoles(request, caller.getId());
+    }
+
+    @DontLog
+    @PostMapping("/jwt/secret")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void rotateJwtSecret(@Valid @RequestBody SecretRotationRequest request) {
+        jwtSecretRotationService.rotate(request.secretKey());
+    }
+
+    @DontLog
+    @PostMapping(value = "/users/import", consumes = "application/x-ndjson")
+    @ResponseStatus(HttpStatus.OK)
+    public ImportReport importUsersNdjson(HttpServletRequest request) throws IOException {
+        return userImportService.importUsers(request.getInputStream(), ImportFormat.NDJSON);
+    }
+
+    @DontLog
+    @PostMapping(value = "/users/import", consumes = "text/csv")
+    @ResponseStatus(HttpStatus.OK)
+    public ImportReport importUsersCsv(HttpServletRequest request) throws IOException {
+        return userImportService.importUsers(request.getInputStream(), ImportFormat.CSV);
+    }
+
+    @DontLog
+    @GetMapping("/users/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + format.getExtension())
+                .body(output -> userExportService.exportUsers(output, format));
+    }
 }
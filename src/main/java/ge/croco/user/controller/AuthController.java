@@ -2,22 +2,41 @@ package ge.croco.user.controller;
 
 import ge.croco.user.model.JWTResponse;
 import ge.croco.user.model.LoginRequest;
+import ge.croco.user.model.RefreshRequest;
 import ge.croco.user.service.AuthService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class AuthController {
 
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final AuthService authService;
 
     @PostMapping("/login")
     public JWTResponse login(@RequestBody LoginRequest login) {
         return authService.login(login.username(), login.password());
     }
+
+    @PostMapping("/refresh")
+    public JWTResponse refresh(@RequestBody @Valid RefreshRequest request) {
+        return authService.refresh(request.refreshToken());
+    }
+
+    @PostMapping("/logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        // Other authentication schemes can reach this endpoint too, only a bearer token can be revoked
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            throw new BadCredentialsException("Logout requires a bearer token");
+        }
+        authService.logout(authorization.substring(BEARER_PREFIX.length()));
+    }
 }
@@ -1,13 +1,19 @@
 package ge.croco.user.controller;
 
 import ge.croco.user.domain.CustomUserDetails;
+import ge.croco.user.enums.UserSort;
+import ge.croco.user.model.CursorPage;
+import ge.croco.user.model.PatchMeRequest;
+import ge.croco.user.model.PatchUserRequest;
 import ge.croco.user.model.UpdateMeRequest;
 import ge.croco.user.model.UserDetails;
 import ge.croco.user.model.UserRequest;
 import ge.croco.user.service.UserService;
+import ge.croco.user.util.IfMatch;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -29,6 +35,15 @@ public class UserController {
         return userService.getUsers(pageable);
     }
 
+    @GetMapping("/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize(value = "hasAnyRole('ADMIN','MODERATOR')")
+    public CursorPage<UserDetails> scrollUsers(@RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "20") int size,
+                                               @RequestParam(defaultValue = "ID") UserSort sort) {
+        return userService.getUsers(cursor, size, sort);
+    }
+
     @GetMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     @PreAuthorize(value = "hasRole('ADMIN') or principal.id == #id")
@@ -45,22 +60,41 @@ public class UserController {
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     @PreAuthorize(value = "hasRole('ADMIN')")
-    public UserDetails updateUser(@PathVariable Long id, @Valid @RequestBody UserRequest user) {
-        return userService.updateUser(id, user);
+    public UserDetails updateUser(@PathVariable Long id, @Valid @RequestBody UserRequest user,
+                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return userService.updateUser(id, user, IfMatch.version(ifMatch));
+    }
+
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    @PreAuthorize(value = "hasRole('ADMIN')")
+    public UserDetails patchUser(@PathVariable Long id, @Valid @RequestBody PatchUserRequest patch,
+                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return userService.patchUser(id, patch, IfMatch.version(ifMatch));
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     @PreAuthorize(value = "hasRole('ADMIN')")
-    public void deleteUser(@PathVariable Long id) {
-        userService.deleteUser(id);
+    public void deleteUser(@PathVariable Long id,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.deleteUser(id, IfMatch.version(ifMatch));
     }
 
     @PutMapping("/me")
     @ResponseStatus(HttpStatus.OK)
     public UserDetails updateMe(@AuthenticationPrincipal CustomUserDetails userDetails,
-                                @RequestBody @Valid UpdateMeRequest user) {
-        return userService.updateMe(userDetails.getId(), user);
+                                @RequestBody @Valid UpdateMeRequest user,
+                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return userService.updateMe(userDetails.getId(), user, IfMatch.version(ifMatch));
+    }
+
+    @PatchMapping("/me")
+    @ResponseStatus(HttpStatus.OK)
+    public UserDetails patchMe(@AuthenticationPrincipal CustomUserDetails userDetails,
+                               @RequestBody @Valid PatchMeRequest patch,
+                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return userService.patchMe(userDetails.getId(), patch, IfMatch.version(ifMatch));
     }
 
 }
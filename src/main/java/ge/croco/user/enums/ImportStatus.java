@@ -0,0 +1,6 @@
+package ge.croco.user.enums;
+
+public enum ImportStatus {
+    CREATED,
+    FAILED
+}
@@ -1,11 +1,45 @@
 package ge.croco.user.enums;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
 public enum Role {
-    ADMIN,
-    USER,
-    MODERATOR;
+    ADMIN(1),
+    USER(1 << 1),
+    MODERATOR(1 << 2);
+
+    // Persisted bit, never reuse or reorder
+    private final int mask;
+
+    Role(int mask) {
+        this.mask = mask;
+    }
 
     public String getName() {
         return "ROLE_" + this;
     }
+
+    public int getMask() {
+        return mask;
+    }
+
+    public static int toMask(Collection<Role> roles) {
+        int mask = 0;
+        if (roles != null) {
+            for (Role role : roles) {
+                mask |= role.mask;
+            }
+        }
+        return mask;
+    }
+
+    public static EnumSet<Role> fromMask(int mask) {
+        EnumSet<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : values()) {
+            if ((mask & role.mask) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
 }
@@ -0,0 +1,6 @@
+package ge.croco.user.enums;
+
+public enum UserSort {
+    ID,
+    CREATED_AT
+}
@@ -0,0 +1,7 @@
+package ge.croco.user.exception;
+
+public class InvalidSearchQueryException extends RuntimeException {
+    public InvalidSearchQueryException(int minLength) {
+        super("Search query must be at least " + minLength + " characters");
+    }
+}
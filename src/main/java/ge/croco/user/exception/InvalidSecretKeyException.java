@@ -0,0 +1,7 @@
+package ge.croco.user.exception;
+
+public class InvalidSecretKeyException extends RuntimeException {
+    public InvalidSecretKeyException(String reason) {
+        super("Invalid JWT secret: " + reason);
+    }
+}
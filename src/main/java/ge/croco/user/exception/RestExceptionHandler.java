@@ -3,6 +3,8 @@ package ge.croco.user.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -34,6 +36,65 @@ public class RestExceptionHandler {
         return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse);
     }
 
+    @ExceptionHandler(UserVersionConflictException.class)
+    protected ResponseEntity<ErrorResponse> handleUserVersionConflictException(UserVersionConflictException e, HttpServletRequest request) {
+        log.warn("Request: {} conflicted: {}", request.getRequestURL(), e.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder(e, HttpStatus.CONFLICT, e.getMessage()).build();
+
+        return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse);
+    }
+
+    // A PATCH whose @Version check failed on flush
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    protected ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(OptimisticLockingFailureException e, HttpServletRequest request) {
+        log.warn("Request: {} conflicted: {}", request.getRequestURL(), e.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder(e, HttpStatus.CONFLICT, "User was modified concurrently, reload and retry").build();
+
+        return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    protected ResponseEntity<ErrorResponse> handleInvalidCursorException(InvalidCursorException e, HttpServletRequest request) {
+        log.error("Request: {} raised", request.getRequestURL(), e);
+        ErrorResponse errorResponse = ErrorResponse.builder(e, HttpStatus.BAD_REQUEST, e.getMessage()).build();
+
+        return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse);
+    }
+
+    @ExceptionHandler(InvalidSearchQueryException.class)
+    protected ResponseEntity<ErrorResponse> handleInvalidSearchQueryException(InvalidSearchQueryException e, HttpServletRequest request) {
+        log.error("Request: {} raised", request.getRequestURL(), e);
+        ErrorResponse errorResponse = ErrorResponse.builder(e, HttpStatus.BAD_REQUEST, e.getMessage()).build();
+
+        return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse);
+    }
+
+    @ExceptionHandler(InvalidSecretKeyException.class)
+    protected ResponseEntity<ErrorResponse> handleInvalidSecretKeyException(InvalidSecretKeyException e, HttpServletRequest request) {
+        log.warn("Request: {} rejected: {}", request.getRequestURL(), e.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder(e, HttpStatus.BAD_REQUEST, e.getMessage()).build();
+
+        return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse);
+    }
+
+    @ExceptionHandler(SelfLockoutException.class)
+    protected ResponseEntity<ErrorResponse> handleSelfLockoutException(SelfLockoutException e, HttpServletRequest request) {
+        log.warn("Request: {} rejected: {}", request.getRequestURL(), e.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder(e, HttpStatus.BAD_REQUEST, e.getMessage()).build();
+
+        return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    protected ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException e, HttpServletRequest request) {
+        log.warn("Request: {} shed: {}", request.getRequestURL(), e.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder(e, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()).build();
+
+        return ResponseEntity.status(errorResponse.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationExceptions(MethodArgumentNotValidException e, HttpServletRequest request) {
         log.error("Request: {} raised", request.getRequestURL(), e);
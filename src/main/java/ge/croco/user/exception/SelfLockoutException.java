@@ -0,0 +1,7 @@
+package ge.croco.user.exception;
+
+public class SelfLockoutException extends RuntimeException {
+    public SelfLockoutException(Long callerId) {
+        super("User " + callerId + " can't delete or demote themselves in a bulk operation");
+    }
+}
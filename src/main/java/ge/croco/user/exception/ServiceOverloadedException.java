@@ -0,0 +1,14 @@
+package ge.croco.user.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String resource, long retryAfterSeconds) {
+        super("Service is overloaded: " + resource + " capacity exhausted, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,7 +1,34 @@
 package ge.croco.user.exception;
 
+import ge.croco.user.domain.User;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
 public class UserAlreadyExistsException extends RuntimeException {
     public UserAlreadyExistsException(String user) {
         super("User " + user + " already exists");
     }
+
+    /**
+     * Maps a violation of the users unique constraints to the offending value, other violations are returned as is.
+     */
+    public static RuntimeException translate(DataIntegrityViolationException e, String username, String email) {
+        String constraintName = getConstraintName(e);
+        if (User.USERNAME_CONSTRAINT.equalsIgnoreCase(constraintName)) {
+            return new UserAlreadyExistsException(username);
+        }
+        if (User.EMAIL_CONSTRAINT.equalsIgnoreCase(constraintName)) {
+            return new UserAlreadyExistsException(email);
+        }
+        return e;
+    }
+
+    private static String getConstraintName(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getConstraintName();
+            }
+        }
+        return null;
+    }
 }
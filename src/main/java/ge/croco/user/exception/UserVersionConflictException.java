@@ -0,0 +1,7 @@
+package ge.croco.user.exception;
+
+public class UserVersionConflictException extends RuntimeException {
+    public UserVersionConflictException(Long userId) {
+        super("User with id " + userId + " was modified concurrently, reload and retry");
+    }
+}
@@ -0,0 +1,19 @@
+package ge.croco.user.model;
+
+import ge.croco.user.enums.Role;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Selects users either by id or by a role they hold.
+ */
+public record BulkDeleteRequest(@Size(max = 100000) List<Long> ids,
+                                Role hasRole) {
+
+    @AssertTrue(message = "exactly one of ids or hasRole is required")
+    public boolean isSelectionValid() {
+        return (ids == null) != (hasRole == null);
+    }
+}
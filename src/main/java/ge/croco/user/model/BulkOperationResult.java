@@ -0,0 +1,4 @@
+package ge.croco.user.model;
+
+public record BulkOperationResult(int affected) {
+}
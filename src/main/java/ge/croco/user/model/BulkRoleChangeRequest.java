@@ -0,0 +1,27 @@
+package ge.croco.user.model;
+
+import ge.croco.user.enums.Role;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Grants and revokes roles for users selected by id or by a role they hold. A role in both sets ends up revoked.
+ */
+public record BulkRoleChangeRequest(@Size(max = 100000) List<Long> ids,
+                                    Role hasRole,
+                                    Set<Role> grant,
+                                    Set<Role> revoke) {
+
+    @AssertTrue(message = "exactly one of ids or hasRole is required")
+    public boolean isSelectionValid() {
+        return (ids == null) != (hasRole == null);
+    }
+
+    @AssertTrue(message = "grant or revoke must name at least one role")
+    public boolean isChangeValid() {
+        return (grant != null && !grant.isEmpty()) || (revoke != null && !revoke.isEmpty());
+    }
+}
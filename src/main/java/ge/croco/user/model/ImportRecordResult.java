@@ -0,0 +1,18 @@
+package ge.croco.user.model;
+
+import ge.croco.user.enums.ImportStatus;
+
+public record ImportRecordResult(int line,
+                                 String username,
+                                 ImportStatus status,
+                                 Long id,
+                                 String error) {
+
+    public static ImportRecordResult created(int line, UserDetails user) {
+        return new ImportRecordResult(line, user.getUsername(), ImportStatus.CREATED, user.getId(), null);
+    }
+
+    public static ImportRecordResult failed(int line, String username, String error) {
+        return new ImportRecordResult(line, username, ImportStatus.FAILED, null, error);
+    }
+}
@@ -0,0 +1,9 @@
+package ge.croco.user.model;
+
+import java.util.List;
+
+public record ImportReport(int total,
+                           int created,
+                           int failed,
+                           List<ImportRecordResult> results) {
+}
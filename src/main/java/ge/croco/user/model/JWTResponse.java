@@ -1,4 +1,5 @@
 package ge.croco.user.model;
 
-public record JWTResponse(String token) {
+public record JWTResponse(String token,
+                          String refreshToken) {
 }
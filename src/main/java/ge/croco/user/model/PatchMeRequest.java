@@ -0,0 +1,13 @@
+package ge.croco.user.model;
+
+import ge.croco.user.annotation.ValidPassword;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Partial update of the caller's own profile, null fields are left unchanged.
+ */
+public record PatchMeRequest(@Size(min = 1) String username,
+                             @Email String email,
+                             @ValidPassword(optional = true) String password) {
+}
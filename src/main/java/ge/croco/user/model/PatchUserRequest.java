@@ -0,0 +1,17 @@
+package ge.croco.user.model;
+
+import ge.croco.user.annotation.ValidPassword;
+import ge.croco.user.enums.Role;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+
+import java.util.Set;
+
+/**
+ * Partial update, null fields are left unchanged.
+ */
+public record PatchUserRequest(@Size(min = 1) String username,
+                               @Email String email,
+                               @ValidPassword(optional = true) String password,
+                               Set<Role> roles) {
+}
@@ -0,0 +1,6 @@
+package ge.croco.user.model;
+
+import jakarta.validation.constraints.NotEmpty;
+
+public record RefreshRequest(@NotEmpty String refreshToken) {
+}
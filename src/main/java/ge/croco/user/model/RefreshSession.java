@@ -0,0 +1,15 @@
+package ge.croco.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshSession implements Serializable {
+    private Long userId;
+    private long expiresAt;
+}
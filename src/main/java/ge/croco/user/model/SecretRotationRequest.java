@@ -0,0 +1,6 @@
+package ge.croco.user.model;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record SecretRotationRequest(@NotBlank String secretKey) {
+}
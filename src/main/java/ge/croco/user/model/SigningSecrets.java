@@ -0,0 +1,9 @@
+package ge.croco.user.model;
+
+import java.io.Serializable;
+
+/**
+ * The JWT signing secret after a rotation, kept in Hazelcast so members started later sign with it too.
+ */
+public record SigningSecrets(String secretKey, String previousSecretKey, long rotatedAt) implements Serializable {
+}
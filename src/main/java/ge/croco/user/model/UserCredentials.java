@@ -0,0 +1,14 @@
+package ge.croco.user.model;
+
+import ge.croco.user.enums.Role;
+
+import java.util.Set;
+
+/**
+ * Columns needed to authenticate a user, selected without loading the entity.
+ */
+public record UserCredentials(Long id,
+                              String username,
+                              String password,
+                              Set<Role> roles) {
+}
@@ -15,4 +15,5 @@ public class UserDetails {
     private String username;
     private String email;
     private Set<Role> roles;
+    private Long version;
 }
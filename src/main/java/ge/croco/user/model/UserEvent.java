@@ -4,6 +4,7 @@ import ge.croco.user.enums.EventType;
 import lombok.*;
 
 import java.time.Instant;
+import java.util.Set;
 
 @Getter
 @Setter
@@ -14,10 +15,16 @@ import java.time.Instant;
 public class UserEvent extends UserDetails {
     private EventType eventType;
     private Instant timestamp;
+    private Set<String> changedFields;
 
     public UserEvent(EventType eventType, Instant timestamp, UserDetails user) {
-        super(user.getId(), user.getUsername(), user.getEmail(), user.getRoles());
+        this(eventType, timestamp, user, null);
+    }
+
+    public UserEvent(EventType eventType, Instant timestamp, UserDetails user, Set<String> changedFields) {
+        super(user.getId(), user.getUsername(), user.getEmail(), user.getRoles(), user.getVersion());
         this.eventType = eventType;
         this.timestamp = timestamp;
+        this.changedFields = changedFields;
     }
 }
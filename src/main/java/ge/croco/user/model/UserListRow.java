@@ -0,0 +1,17 @@
+package ge.croco.user.model;
+
+import ge.croco.user.enums.Role;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * A keyset listing row, the user plus the creation time the next cursor is built from.
+ */
+public record UserListRow(UserDetails details, LocalDateTime createdAt) {
+
+    // Flat form for JPQL constructor expressions
+    public UserListRow(Long id, String username, String email, Set<Role> roles, Long version, LocalDateTime createdAt) {
+        this(new UserDetails(id, username, email, roles, version), createdAt);
+    }
+}
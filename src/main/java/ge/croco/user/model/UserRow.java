@@ -0,0 +1,16 @@
+package ge.croco.user.model;
+
+/**
+ * Row projection for native queries, roles come back as the raw bitmask.
+ */
+public interface UserRow {
+    Long getId();
+
+    String getUsername();
+
+    String getEmail();
+
+    Integer getRoles();
+
+    Long getVersion();
+}
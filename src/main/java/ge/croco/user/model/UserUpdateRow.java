@@ -0,0 +1,10 @@
+package ge.croco.user.model;
+
+/**
+ * Result of an UPDATE ... RETURNING, with the values the row had before the update.
+ */
+public interface UserUpdateRow extends UserRow {
+    String getPreviousUsername();
+
+    Integer getPreviousRoles();
+}
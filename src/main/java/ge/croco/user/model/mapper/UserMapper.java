@@ -1,8 +1,10 @@
 package ge.croco.user.model.mapper;
 
 import ge.croco.user.domain.User;
+import ge.croco.user.enums.Role;
 import ge.croco.user.model.UserDetails;
 import ge.croco.user.model.UserRequest;
+import ge.croco.user.model.UserRow;
 
 public class UserMapper {
 
@@ -12,6 +14,17 @@ public class UserMapper {
                 .username(user.getUsername())
                 .email(user.getEmail())
                 .roles(user.getRoles())
+                .version(user.getVersion())
+                .build();
+    }
+
+    public static UserDetails toDetails(UserRow row) {
+        return UserDetails.builder()
+                .id(row.getId())
+                .username(row.getUsername())
+                .email(row.getEmail())
+                .roles(Role.fromMask(row.getRoles()))
+                .version(row.getVersion())
                 .build();
     }
 
@@ -0,0 +1,33 @@
+package ge.croco.user.repository;
+
+import ge.croco.user.domain.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.tokenHash = :tokenHash")
+    int deleteByTokenHash(String tokenHash);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.userId = :userId")
+    void deleteByUserId(Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.userId in :userIds")
+    void deleteByUserIdIn(Collection<Long> userIds);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken r where r.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
@@ -1,13 +1,147 @@
 package ge.croco.user.repository;
 
 import ge.croco.user.domain.User;
+import ge.croco.user.model.UserCredentials;
+import ge.croco.user.model.UserDetails;
+import ge.croco.user.model.UserListRow;
+import ge.croco.user.model.UserRow;
+import ge.croco.user.model.UserUpdateRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByUsername(String username);
-    Optional<User> findByEmail(String email);
-    boolean existsByUsername(String username);
-    boolean existsByEmail(String email);
+
+    // Read-only projections, no managed entities or password hashes where they aren't needed
+    @Transactional(readOnly = true)
+    @Query("select new ge.croco.user.model.UserDetails(u.id, u.username, u.email, u.roles, u.version) from User u where u.id = :id")
+    Optional<UserDetails> findDetailsById(Long id);
+
+    @Query("select new ge.croco.user.model.UserDetails(u.id, u.username, u.email, u.roles, u.version) from User u")
+    List<UserDetails> findAllDetails(Pageable pageable);
+
+    @Query("select new ge.croco.user.model.UserDetails(u.id, u.username, u.email, u.roles, u.version) from User u where u.username = :username")
+    Optional<UserDetails> findDetailsByUsername(String username);
+
+    @Query("select new ge.croco.user.model.UserCredentials(u.id, u.username, u.password, u.roles) from User u where u.username = :username")
+    Optional<UserCredentials> findCredentialsByUsername(String username);
+
+    @Query("select new ge.croco.user.model.UserCredentials(u.id, u.username, u.password, u.roles) from User u where u.id = :id")
+    Optional<UserCredentials> findCredentialsById(Long id);
+
+    // One lookup for both unique keys of a whole import chunk
+    @Query("select new ge.croco.user.model.UserDetails(u.id, u.username, u.email, u.roles, u.version) from User u where u.username in :usernames or u.email in :emails")
+    List<UserDetails> findDetailsByUsernameInOrEmailIn(Collection<String> usernames, Collection<String> emails);
+
+    // Single-statement writes, conditional on the version when checkVersion is set. An empty result means the row
+    // is missing or was modified concurrently. The locked CTE hands back the values from before the update.
+    @Transactional
+    @Query(value = """
+            with previous as (select id, username, roles from users where id = :id for update)
+            update users u
+            set username = :username, email = :email, password = :password, roles = :roles, version = u.version + 1
+            from previous
+            where u.id = previous.id and (:checkVersion = false or u.version = :version)
+            returning u.id, u.username, u.email, u.roles, u.version,
+                      previous.username as "previousUsername", previous.roles as "previousRoles\"""", nativeQuery = true)
+    Optional<UserUpdateRow> updateUser(Long id, String username, String email, String password, int roles,
+                                       boolean checkVersion, long version);
+
+    @Transactional
+    @Query(value = """
+            with previous as (select id, username, roles from users where id = :id for update)
+            update users u
+            set username = :username, email = :email, password = :password, version = u.version + 1
+            from previous
+            where u.id = previous.id and (:checkVersion = false or u.version = :version)
+            returning u.id, u.username, u.email, u.roles, u.version,
+                      previous.username as "previousUsername", previous.roles as "previousRoles\"""", nativeQuery = true)
+    Optional<UserUpdateRow> updateCredentials(Long id, String username, String email, String password,
+                                              boolean checkVersion, long version);
+
+    @Transactional
+    @Query(value = """
+            delete from users
+            where id = :id and (:checkVersion = false or version = :version)
+            returning id, username, email, roles, version""", nativeQuery = true)
+    Optional<UserRow> deleteReturning(Long id, boolean checkVersion, long version);
+
+    // Set-based bulk writes, one statement per chunk of ids
+    @Transactional
+    @Query(value = """
+            delete from users
+            where id in (:ids)
+            returning id, username, email, roles, version""", nativeQuery = true)
+    List<UserRow> deleteAllReturning(Collection<Long> ids);
+
+    @Transactional
+    @Query(value = """
+            update users
+            set roles = (roles | :grant) & ~:revoke, version = version + 1
+            where id in (:ids) and roles <> ((roles | :grant) & ~:revoke)
+            returning id, username, email, roles, version""", nativeQuery = true)
+    List<UserRow> updateRolesReturning(Collection<Long> ids, int grant, int revoke);
+
+    @Query(value = """
+            select id from users
+            where id > :afterId and (roles & :mask) <> 0
+            order by id
+            limit :limit""", nativeQuery = true)
+    List<Long> findIdsWithRole(long afterId, int mask, int limit);
+
+    // Substring match served by the trigram indexes, ranked exact match, then prefix, then similarity.
+    // Each column contributes at most :candidates nearest matches, so a short common term never ranks
+    // the whole table: EXPLAIN shows a Limit over an Index Scan on each GiST index with "Order By: (lower(..) <-> ..)"
+    @Query(value = """
+            with candidates as (
+                (select id from users where lower(username) like :pattern
+                 order by lower(username) <-> :term limit :candidates)
+                union
+                (select id from users where lower(email) like :pattern
+                 order by lower(email) <-> :term limit :candidates)
+            )
+            select u.id, u.username, u.email, u.roles, u.version
+            from users u join candidates c on c.id = u.id
+            order by lower(u.username) = :term or lower(u.email) = :term desc,
+                     lower(u.username) like :prefix or lower(u.email) like :prefix desc,
+                     greatest(similarity(lower(u.username), :term), similarity(lower(u.email), :term)) desc,
+                     u.id
+            limit :limit""", nativeQuery = true)
+    List<UserRow> search(String term, String prefix, String pattern, int candidates, int limit);
+
+    // Server-side cursor for exports, must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new ge.croco.user.model.UserDetails(u.id, u.username, u.email, u.roles, u.version) from User u order by u.id")
+    Stream<UserDetails> streamAllDetails();
+
+    // Keyset listings: seek past the last row instead of OFFSET, a List return type skips the count query
+    @Query("""
+            select new ge.croco.user.model.UserListRow(u.id, u.username, u.email, u.roles, u.version, u.createdAt)
+            from User u
+            where u.id > :id
+            order by u.id""")
+    List<UserListRow> findListRowsAfterId(Long id, Pageable pageable);
+
+    @Query("""
+            select new ge.croco.user.model.UserListRow(u.id, u.username, u.email, u.roles, u.version, u.createdAt)
+            from User u
+            order by u.createdAt, u.id""")
+    List<UserListRow> findListRowsByCreatedAt(Pageable pageable);
+
+    @Query("""
+            select new ge.croco.user.model.UserListRow(u.id, u.username, u.email, u.roles, u.version, u.createdAt)
+            from User u
+            where u.createdAt > :createdAt or (u.createdAt = :createdAt and u.id > :id)
+            order by u.createdAt, u.id""")
+    List<UserListRow> findListRowsAfterCreatedAt(LocalDateTime createdAt, Long id, Pageable pageable);
 }
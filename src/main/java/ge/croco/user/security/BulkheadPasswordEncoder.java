@@ -0,0 +1,39 @@
+package ge.croco.user.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+@RequiredArgsConstructor
+public class BulkheadPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final PasswordHashingBulkhead bulkhead;
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return bulkhead.execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return bulkhead.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Hashes a batch in parallel across the bulkhead threads, waiting for capacity instead of shedding.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        return bulkhead.executeAll(rawPasswords.stream()
+                .<Supplier<String>>map(rawPassword -> () -> delegate.encode(rawPassword))
+                .toList());
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
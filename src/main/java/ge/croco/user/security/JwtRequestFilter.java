@@ -2,11 +2,16 @@ package ge.croco.user.security;
 
 import ge.croco.user.domain.CustomUserDetails;
 import ge.croco.user.service.CustomUserDetailsService;
+import ge.croco.user.service.TokenRevocationService;
+import ge.croco.user.service.TokenVersionService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -15,6 +20,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -23,24 +29,36 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
 
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final TokenVersionService tokenVersionService;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    // Build the principal from verified claims instead of loading the user on every request
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        ParsedToken token = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtTokenUtil.extractUsername(jwt);
+            token = parseToken(authorizationHeader.substring(7));
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            CustomUserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (token != null && tokenRevocationService.isRevoked(token)) {
+            token = null; // Revoked tokens are treated like missing ones
+        }
+
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            CustomUserDetails userDetails = loadUserDetails(token);
 
-            if (jwtTokenUtil.validateToken(jwt, userDetails)) {
+            if (userDetails != null && jwtTokenUtil.validateToken(token, userDetails)) {
                 UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                     userDetails, null, userDetails.getAuthorities());
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -49,4 +67,23 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
+
+    private CustomUserDetails loadUserDetails(ParsedToken token) {
+        if (!stateless) {
+            return userDetailsService.loadPrincipal(token.subject());
+        }
+        if (!tokenVersionService.isCurrent(token.userId(), token.issuedAt())) {
+            return null; // User was changed or deleted after the token was issued
+        }
+        return new CustomUserDetails(token.userId(), token.subject(), null, token.grantedAuthorities());
+    }
+
+    private ParsedToken parseToken(String jwt) {
+        try {
+            return verifiedTokenCache.parseToken(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected bearer token: {}", e.getMessage());
+            return null; // Invalid or expired token, continue unauthenticated
+        }
+    }
 }
\ No newline at end of file
@@ -2,91 +2,106 @@ package ge.croco.user.security;
 
 import ge.croco.user.domain.CustomUserDetails;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.Date;
-import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenUtil {
 
-    @Value("${jwt.secret.key}")
-    private String secretKey;
+    private final int expirationMs;
 
-    @Value("${jwt.expiration-ms}")
-    private int expirationMs;
-
-    public String generateToken(CustomUserDetails userDetails) {
+    // Keys and parsers are immutable and thread-safe, swapped together on secret rotation
+    private volatile SigningKeys signingKeys;
 
+    public JwtTokenUtil(@Value("${jwt.secret.key}") String secretKey,
+                        @Value("${jwt.expiration-ms}") int expirationMs) {
+        this.expirationMs = expirationMs;
+        this.signingKeys = new SigningKeys(SigningContext.of(secretKey), null, Instant.EPOCH);
+    }
 
+    public String generateToken(CustomUserDetails userDetails) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .claim("authorities", extractRoles(userDetails.getAuthorities()))
                 .claim("userId", userDetails.getId())
+                .claim(ParsedToken.ISSUED_AT_MILLIS, now) // "iat" only has second precision
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
-                .signWith(getSigningKey(secretKey), SignatureAlgorithm.HS512)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expirationMs))
+                .signWith(signingKeys.current().key(), SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    /**
+     * Verifies the signature and expiry once and exposes the claims needed for authentication.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, expired or not signed with our key
+     */
+    public ParsedToken parseToken(String token) {
+        return ParsedToken.from(signingKeys.parse(token));
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractAllClaims(token).getExpiration();
+    public boolean validateToken(ParsedToken token, UserDetails userDetails) {
+        return token.subject().equals(userDetails.getUsername()) && !token.isExpired();
     }
 
     public static Claims extractAllClaims(String token, String secretKey) {
-        return extractAllClaims(token, getSigningKey(secretKey));
+        return SigningContext.of(secretKey).parse(token);
     }
 
     public Claims extractAllClaims(String token) {
-        return extractAllClaims(token, getSigningKey(secretKey));
+        return signingKeys.parse(token);
     }
 
     public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject(); // Extract the "sub" claim (username)
+        return parseToken(token).subject(); // Extract the "sub" claim (username)
     }
 
     public Long extractUserId(String token) {
-        return extractAllClaims(token).get("userId", Long.class); // Extract the "userId" claim
+        return parseToken(token).userId(); // Extract the "userId" claim
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey(secretKey)).build().parseClaimsJws(token);
+            signingKeys.parse(token);
             return true;
         } catch (Exception e) {
             return false; // Token is invalid
         }
     }
 
-    private static Key getSigningKey(String secretKey) {
-        return Keys.hmacShaKeyFor(java.util.Base64.getDecoder().decode(secretKey));
+    /**
+     * Signs with {@code secretKey} from now on. Tokens signed with {@code previousSecretKey} keep verifying
+     * until {@code previousValidUntil}, so a rotation doesn't log everyone out. Rotate through
+     * {@link ge.croco.user.service.JwtSecretRotationService}, which applies it on every member.
+     */
+    public void useSecrets(String secretKey, String previousSecretKey, Instant previousValidUntil) {
+        this.signingKeys = new SigningKeys(SigningContext.of(secretKey),
+                previousSecretKey == null ? null : SigningContext.of(previousSecretKey), previousValidUntil);
     }
 
-    private static Claims extractAllClaims(String token, Key signingKey) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey) // Use the secret key to verify the token
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * @throws IllegalArgumentException if the secret is not Base64
+     * @throws io.jsonwebtoken.security.WeakKeyException if it is too short for HS512
+     */
+    public static void checkSecret(String secretKey) {
+        SigningContext.of(secretKey);
     }
 
     private Set<String> extractRoles(Collection<? extends GrantedAuthority> authorities) {
@@ -94,4 +109,32 @@ public class JwtTokenUtil {
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toSet());
     }
-}
\ No newline at end of file
+
+    private record SigningKeys(SigningContext current, SigningContext previous, Instant previousValidUntil) {
+
+        Claims parse(String token) {
+            try {
+                return current.parse(token);
+            } catch (SignatureException e) {
+                if (previous == null || Instant.now().isAfter(previousValidUntil)) {
+                    throw e;
+                }
+                return previous.parse(token);
+            }
+        }
+    }
+
+    private record SigningContext(Key key, JwtParser parser) {
+
+        static SigningContext of(String secretKey) {
+            Key key = Keys.hmacShaKeyFor(java.util.Base64.getDecoder().decode(secretKey));
+            return new SigningContext(key, Jwts.parserBuilder()
+                    .setSigningKey(key) // Use the secret key to verify the token
+                    .build());
+        }
+
+        Claims parse(String token) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+    }
+}
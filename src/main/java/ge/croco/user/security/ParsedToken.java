@@ -0,0 +1,49 @@
+package ge.croco.user.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public record ParsedToken(String tokenId,
+                          String subject,
+                          Long userId,
+                          List<String> authorities,
+                          Instant issuedAt,
+                          Instant expiresAt) {
+
+    static final String ISSUED_AT_MILLIS = "iat_ms";
+
+    @SuppressWarnings("unchecked")
+    static ParsedToken from(Claims claims) {
+        List<String> authorities = claims.get("authorities", List.class);
+        return new ParsedToken(
+                claims.getId(),
+                claims.getSubject(),
+                claims.get("userId", Long.class),
+                authorities == null ? List.of() : List.copyOf(authorities),
+                issuedAt(claims),
+                claims.getExpiration().toInstant()
+        );
+    }
+
+    private static Instant issuedAt(Claims claims) {
+        Long issuedAtMillis = claims.get(ISSUED_AT_MILLIS, Long.class);
+        if (issuedAtMillis != null) {
+            return Instant.ofEpochMilli(issuedAtMillis);
+        }
+        return claims.getIssuedAt() == null ? Instant.EPOCH : claims.getIssuedAt().toInstant();
+    }
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(Instant.now());
+    }
+
+    public Collection<? extends GrantedAuthority> grantedAuthorities() {
+        return authorities.stream()
+                .map(RoleAuthorities::forName)
+                .toList();
+    }
+}
@@ -0,0 +1,58 @@
+package ge.croco.user.security;
+
+import ge.croco.user.enums.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared immutable authorities, one instance per role and one list per role combination,
+ * so loading a principal doesn't allocate them again.
+ */
+public class RoleAuthorities {
+
+    private static final Map<String, GrantedAuthority> BY_NAME;
+    private static final List<List<GrantedAuthority>> BY_MASK;
+
+    static {
+        Map<String, GrantedAuthority> byName = new HashMap<>();
+        for (Role role : Role.values()) {
+            byName.put(role.getName(), new SimpleGrantedAuthority(role.getName()));
+        }
+        BY_NAME = Map.copyOf(byName);
+
+        int combinations = Role.toMask(EnumSet.allOf(Role.class)) + 1;
+        List<List<GrantedAuthority>> byMask = new ArrayList<>(combinations);
+        for (int mask = 0; mask < combinations; mask++) {
+            byMask.add(Role.fromMask(mask).stream()
+                    .map(role -> BY_NAME.get(role.getName()))
+                    .toList());
+        }
+        BY_MASK = List.copyOf(byMask);
+    }
+
+    private RoleAuthorities() {
+    }
+
+    public static List<GrantedAuthority> forRoles(Collection<Role> roles) {
+        return BY_MASK.get(Role.toMask(roles));
+    }
+
+    public static List<GrantedAuthority> forMask(int mask) {
+        return BY_MASK.get(mask);
+    }
+
+    /**
+     * The shared instance for a role authority name such as {@code ROLE_ADMIN}, a new one for anything else.
+     */
+    public static GrantedAuthority forName(String authority) {
+        GrantedAuthority shared = BY_NAME.get(authority);
+        return shared != null ? shared : new SimpleGrantedAuthority(authority);
+    }
+}
@@ -26,8 +26,8 @@ public class SecurityConfig {
     private final JwtRequestFilter jwtRequestFilter;
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BulkheadPasswordEncoder passwordEncoder(PasswordHashingBulkhead passwordHashingBulkhead) {
+        return new BulkheadPasswordEncoder(new BCryptPasswordEncoder(), passwordHashingBulkhead);
     }
 
     @Bean
@@ -46,6 +46,7 @@ public class SecurityConfig {
                 .cors(AbstractHttpConfigurer::disable) // Disable cors
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/login").permitAll() // Public endpoint
+                        .requestMatchers("/api/refresh").permitAll()
                         .requestMatchers("/api/users").permitAll()
                         .requestMatchers(getSwaggerPaths()).permitAll()
                         .requestMatchers("/actuator/**").permitAll()
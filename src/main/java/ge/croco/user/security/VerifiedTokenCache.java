@@ -0,0 +1,63 @@
+package ge.croco.user.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import ge.croco.user.util.TokenDigest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Bounded cache of already verified tokens keyed by their SHA-256 digest.
+ * Each entry is evicted when the token's exp claim passes, so an expired token is never served.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    public static final String CACHE_NAME = "jwt-verified-tokens";
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final Cache<String, ParsedToken> cache;
+
+    public VerifiedTokenCache(JwtTokenUtil jwtTokenUtil,
+                              MeterRegistry meterRegistry,
+                              @Value("${jwt.verified-cache.max-size:100000}") long maxSize) {
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * @throws io.jsonwebtoken.JwtException if the token is not cached and fails verification
+     */
+    public ParsedToken parseToken(String token) {
+        return cache.get(TokenDigest.sha256(token), key -> jwtTokenUtil.parseToken(token));
+    }
+
+    private static class TokenExpiry implements Expiry<String, ParsedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, ParsedToken token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, ParsedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, ParsedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
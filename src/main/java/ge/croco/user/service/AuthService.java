@@ -4,4 +4,8 @@ import ge.croco.user.model.JWTResponse;
 
 public interface AuthService {
     JWTResponse login(String username, String password);
+
+    JWTResponse refresh(String refreshToken);
+
+    void logout(String token);
 }
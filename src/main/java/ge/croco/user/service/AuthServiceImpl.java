@@ -2,10 +2,14 @@ package ge.croco.user.service;
 
 import ge.croco.user.domain.CustomUserDetails;
 import ge.croco.user.model.JWTResponse;
+import ge.croco.user.model.RefreshSession;
 import ge.croco.user.security.JwtTokenUtil;
+import ge.croco.user.security.ParsedToken;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
@@ -19,6 +23,12 @@ public class AuthServiceImpl implements AuthService {
 
     private final JwtTokenUtil jwtTokenUtil;
 
+    private final TokenRevocationService tokenRevocationService;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private final CustomUserDetailsService userDetailsService;
+
     @Override
     public JWTResponse login(String username, String password) {
         Authentication authentication = authenticationManager.authenticate(
@@ -26,8 +36,36 @@ public class AuthServiceImpl implements AuthService {
         );
 
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+
+        return issueTokens(userDetails);
+    }
+
+    @Override
+    public JWTResponse refresh(String refreshToken) {
+        RefreshSession session = refreshTokenService.consume(refreshToken)
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+
+        // Reload so role changes made since the last login are picked up, no password check needed
+        CustomUserDetails userDetails = userDetailsService.loadUserById(session.getUserId());
+
+        return issueTokens(userDetails);
+    }
+
+    @Override
+    public void logout(String token) {
+        ParsedToken parsedToken;
+        try {
+            parsedToken = jwtTokenUtil.parseToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new BadCredentialsException("Invalid bearer token");
+        }
+        tokenRevocationService.revokeToken(parsedToken.tokenId(), parsedToken.expiresAt());
+    }
+
+    private JWTResponse issueTokens(CustomUserDetails userDetails) {
         String token = jwtTokenUtil.generateToken(userDetails);
+        String refreshToken = refreshTokenService.issue(userDetails.getId());
 
-        return new JWTResponse(token);
+        return new JWTResponse(token, refreshToken);
     }
 }
@@ -1,42 +1,65 @@
 package ge.croco.user.service;
 
+import ge.croco.user.annotation.ReadFromPrimary;
+import ge.croco.user.cache.CachedPrincipal;
+import ge.croco.user.cache.PrincipalCache;
 import ge.croco.user.domain.CustomUserDetails;
-import ge.croco.user.domain.User;
+import ge.croco.user.model.UserCredentials;
 import ge.croco.user.repository.UserRepository;
+import ge.croco.user.security.RoleAuthorities;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-
-import java.util.Collection;
-import java.util.stream.Collectors;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
+    /**
+     * Credentials for the password check at login, never cached so a hash doesn't outlive the request.
+     */
     @Override
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
     public CustomUserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        UserCredentials user = userRepository.findCredentialsByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found!"));
 
-        return new CustomUserDetails(
-                user.getId(),
-                user.getUsername(),
-                user.getPassword(),
-                getAuthorities(user)
-        );
+        return toUserDetails(user);
+    }
+
+    /**
+     * The principal of a verified token, without a password. Cached by username, every write that changes a
+     * username or roles puts through {@link PrincipalCache}.
+     */
+    @ReadFromPrimary
+    public CustomUserDetails loadPrincipal(String username) throws UsernameNotFoundException {
+        CachedPrincipal principal = principalCache.get(username, () -> userRepository.findDetailsByUsername(username))
+                .orElseThrow(() -> new UsernameNotFoundException("User not found!"));
+
+        return new CustomUserDetails(principal.id(), username, null, RoleAuthorities.forMask(principal.roles()));
     }
 
-    private Collection<? extends GrantedAuthority> getAuthorities(User user) {
-        return user.getRoles()
-                .stream()
-                .map(role -> new SimpleGrantedAuthority(role.getName()))
-                .collect(Collectors.toList());
+    @ReadFromPrimary
+    @Transactional(readOnly = true)
+    public CustomUserDetails loadUserById(Long id) throws UsernameNotFoundException {
+        UserCredentials user = userRepository.findCredentialsById(id)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found!"));
+
+        return toUserDetails(user);
+    }
+
+    private CustomUserDetails toUserDetails(UserCredentials user) {
+        return new CustomUserDetails(
+                user.id(),
+                user.username(),
+                user.password(),
+                RoleAuthorities.forRoles(user.roles())
+        );
     }
-}
\ No newline at end of file
+}
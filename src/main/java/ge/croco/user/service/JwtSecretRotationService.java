@@ -0,0 +1,95 @@
+package ge.croco.user.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.topic.ITopic;
+import ge.croco.user.exception.InvalidSecretKeyException;
+import ge.croco.user.model.SigningSecrets;
+import ge.croco.user.security.JwtTokenUtil;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Rotates the JWT signing secret on every member without a restart. The rotation is stored in a map for members
+ * that start later and broadcast over a topic to the running ones. The previous secret keeps verifying for one
+ * token lifetime, so tokens issued before the rotation stay valid until they expire.
+ */
+@Slf4j
+@Service
+public class JwtSecretRotationService {
+
+    public static final String SIGNING_SECRETS = "jwt-signing-secrets";
+    public static final String ROTATION_TOPIC = "jwt-secret-rotations";
+
+    private static final String CURRENT = "current";
+    // Covers clock skew between members and tokens signed with the old secret while the rotation propagated
+    private static final Duration GRACE_MARGIN = Duration.ofMinutes(1);
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final IMap<String, SigningSecrets> secrets;
+    private final ITopic<SigningSecrets> rotations;
+    private final long expirationMs;
+
+    private final String configuredSecret;
+    private long appliedRotatedAt; // 0 while signing with the configured secret
+
+    public JwtSecretRotationService(HazelcastInstance hazelcastInstance,
+                                    JwtTokenUtil jwtTokenUtil,
+                                    @Value("${jwt.secret.key}") String configuredSecret,
+                                    @Value("${jwt.expiration-ms}") long expirationMs) {
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.secrets = hazelcastInstance.getMap(SIGNING_SECRETS);
+        this.rotations = hazelcastInstance.getTopic(ROTATION_TOPIC);
+        this.expirationMs = expirationMs;
+        this.configuredSecret = configuredSecret;
+
+        // Subscribe before reading the stored rotation so one published in between isn't missed
+        rotations.addMessageListener(message -> apply(message.getMessageObject()));
+        SigningSecrets rotated = secrets.get(CURRENT);
+        if (rotated != null) {
+            apply(rotated);
+        }
+    }
+
+    public void rotate(String secretKey) {
+        try {
+            JwtTokenUtil.checkSecret(secretKey);
+        } catch (IllegalArgumentException | JwtException e) {
+            throw new InvalidSecretKeyException(e.getMessage());
+        }
+        SigningSecrets rotation;
+        // Concurrent rotations, also from other members, run one at a time, each one retires the secret
+        // the previous one stored
+        secrets.lock(CURRENT);
+        try {
+            long now = System.currentTimeMillis();
+            SigningSecrets stored = secrets.get(CURRENT);
+            rotation = stored == null
+                    ? new SigningSecrets(secretKey, configuredSecret, now)
+                    : new SigningSecrets(secretKey, stored.secretKey(), Math.max(now, stored.rotatedAt() + 1));
+            secrets.set(CURRENT, rotation);
+            rotations.publish(rotation); // Delivered to this member as well
+        } finally {
+            secrets.unlock(CURRENT);
+        }
+        apply(rotation);
+    }
+
+    // rotatedAt increases with every stored rotation, so a late message can't switch back to an older secret
+    private synchronized void apply(SigningSecrets rotation) {
+        if (rotation.rotatedAt() <= appliedRotatedAt) {
+            return;
+        }
+        Instant previousValidUntil = Instant.ofEpochMilli(rotation.rotatedAt())
+                .plusMillis(expirationMs)
+                .plus(GRACE_MARGIN);
+        jwtTokenUtil.useSecrets(rotation.secretKey(), rotation.previousSecretKey(), previousValidUntil);
+        appliedRotatedAt = rotation.rotatedAt();
+        log.info("Switched JWT signing secret, tokens signed with the previous one verify until {}", previousValidUntil);
+    }
+}
@@ -0,0 +1,108 @@
+package ge.croco.user.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicates;
+import ge.croco.user.domain.RefreshToken;
+import ge.croco.user.model.RefreshSession;
+import ge.croco.user.repository.RefreshTokenRepository;
+import ge.croco.user.util.TokenDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues single-use refresh tokens. Sessions live in Hazelcast for fast rotation and are persisted so they
+ * survive a cluster restart. Only the SHA-256 digest of a refresh token is ever stored.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    public static final String REFRESH_TOKENS = "refresh-tokens";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final IMap<String, RefreshSession> sessions;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpirationMs;
+
+    public RefreshTokenService(HazelcastInstance hazelcastInstance,
+                               RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh-expiration-ms}") long refreshExpirationMs) {
+        this.sessions = hazelcastInstance.getMap(REFRESH_TOKENS);
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpirationMs = refreshExpirationMs;
+    }
+
+    public String issue(Long userId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        String tokenHash = TokenDigest.sha256(refreshToken);
+        long expiresAt = System.currentTimeMillis() + refreshExpirationMs;
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(tokenHash)
+                .userId(userId)
+                .expiresAt(Instant.ofEpochMilli(expiresAt))
+                .build());
+        sessions.set(tokenHash, new RefreshSession(userId, expiresAt), refreshExpirationMs, TimeUnit.MILLISECONDS);
+
+        return refreshToken;
+    }
+
+    /**
+     * Consumes a refresh token. Every token can be used once, the caller is expected to issue a new one.
+     */
+    public Optional<RefreshSession> consume(String refreshToken) {
+        String tokenHash = TokenDigest.sha256(refreshToken);
+
+        RefreshSession session = sessions.remove(tokenHash);
+        if (session != null) {
+            refreshTokenRepository.deleteByTokenHash(tokenHash);
+        } else {
+            // Fallback for sessions Hazelcast lost, the delete count guards against concurrent reuse
+            session = refreshTokenRepository.findById(tokenHash)
+                    .filter(token -> refreshTokenRepository.deleteByTokenHash(tokenHash) > 0)
+                    .map(token -> new RefreshSession(token.getUserId(), token.getExpiresAt().toEpochMilli()))
+                    .orElse(null);
+        }
+
+        return Optional.ofNullable(session)
+                .filter(s -> s.getExpiresAt() > System.currentTimeMillis());
+    }
+
+    public void revokeAll(Long userId) {
+        sessions.removeAll(Predicates.equal("userId", userId));
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    public void revokeAll(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        sessions.removeAll(Predicates.in("userId", userIds.toArray(Long[]::new)));
+        refreshTokenRepository.deleteByUserIdIn(userIds);
+    }
+
+    /**
+     * Expired sessions leave Hazelcast by TTL, but their rows are only deleted when consumed or revoked.
+     * Every member runs this, the delete is idempotent.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(Instant.now());
+        if (purged > 0) {
+            log.info("Purged {} expired refresh tokens", purged);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ge.croco.user.service;
+
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.map.listener.EntryAddedListener;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+import ge.croco.user.security.ParsedToken;
+import ge.croco.user.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cluster-wide revocation list for access tokens. Revocations are stored in a Hazelcast map and every node keeps
+ * a local Bloom filter replica fed by map events, so a token that was never revoked is rejected from the filter
+ * without a network hop. Only filter hits are confirmed against the map.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    public static final String REVOKED_TOKENS = "revoked-tokens";
+
+    private static final String TOKEN_PREFIX = "t:";
+    private static final String USER_PREFIX = "u:";
+
+    private final IMap<String, Long> revocations;
+    private final long expirationMs;
+    private final int expectedRevocations;
+    private final double falsePositiveRate;
+    private final AtomicInteger insertions = new AtomicInteger();
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+    private volatile int capacity;
+
+    public TokenRevocationService(HazelcastInstance hazelcastInstance,
+                                  @Value("${jwt.expiration-ms}") long expirationMs,
+                                  @Value("${jwt.revocation.expected-revocations:100000}") int expectedRevocations,
+                                  @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revocations = hazelcastInstance.getMap(REVOKED_TOKENS);
+        this.expirationMs = expirationMs;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+
+        // Listen before the initial load so no revocation published in between is missed
+        this.capacity = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+        revocations.addEntryListener(new ReplicaListener(), false);
+        rebuildFilter();
+    }
+
+    public boolean isRevoked(ParsedToken token) {
+        BloomFilter current = filter;
+        if (token.tokenId() != null && current.mightContain(TOKEN_PREFIX + token.tokenId())
+                && revocations.containsKey(TOKEN_PREFIX + token.tokenId())) {
+            return true;
+        }
+        if (token.userId() != null && current.mightContain(USER_PREFIX + token.userId())) {
+            Long revokedAtMillis = revocations.get(USER_PREFIX + token.userId());
+            return revokedAtMillis != null && token.issuedAt().toEpochMilli() <= revokedAtMillis;
+        }
+        return false;
+    }
+
+    /**
+     * Revokes a single token until it expires, e.g. on logout.
+     */
+    public void revokeToken(String tokenId, Instant expiresAt) {
+        long ttlMs = expiresAt.toEpochMilli() - System.currentTimeMillis();
+        if (tokenId == null || ttlMs <= 0) {
+            return; // Nothing to revoke, the token is already unusable
+        }
+        String key = TOKEN_PREFIX + tokenId;
+        revocations.set(key, expiresAt.toEpochMilli(), ttlMs, TimeUnit.MILLISECONDS);
+        addToFilter(key);
+    }
+
+    /**
+     * Revokes every token issued to the user up to now, e.g. on delete or role change.
+     */
+    public void revokeUser(Long userId) {
+        String key = USER_PREFIX + userId;
+        revocations.set(key, Instant.now().toEpochMilli(), expirationMs, TimeUnit.MILLISECONDS);
+        addToFilter(key);
+    }
+
+    /**
+     * Revokes the tokens of many users, the map writes go out in parallel.
+     */
+    public void revokeUsers(Collection<Long> userIds) {
+        long revokedAt = Instant.now().toEpochMilli();
+        CompletableFuture<?>[] writes = userIds.stream()
+                .map(userId -> revocations.setAsync(USER_PREFIX + userId, revokedAt, expirationMs, TimeUnit.MILLISECONDS)
+                        .toCompletableFuture())
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(writes).join();
+        userIds.forEach(userId -> addToFilter(USER_PREFIX + userId));
+    }
+
+    // The key is already in the map. A rebuild whose key snapshot may have missed it started before this call,
+    // so it is still pending here or has already swapped filters, which the second read of filter catches
+    private void addToFilter(String key) {
+        BloomFilter current = filter;
+        current.put(key);
+        BloomFilter pending = rebuilding;
+        if (pending != null) {
+            pending.put(key);
+        }
+        BloomFilter latest = filter;
+        if (latest != current) {
+            latest.put(key);
+        }
+        // Bloom filters can't forget expired keys, so rebuild from the live map once it has seen too many
+        if (insertions.incrementAndGet() > capacity) {
+            rebuildIfSaturated();
+        }
+    }
+
+    private synchronized void rebuildIfSaturated() {
+        if (insertions.get() > capacity) {
+            rebuildFilter();
+        }
+    }
+
+    private synchronized void rebuildFilter() {
+        int liveEntries = revocations.size();
+        int newCapacity = Math.max(expectedRevocations, liveEntries * 2);
+        BloomFilter rebuilt = new BloomFilter(newCapacity, falsePositiveRate);
+        rebuilding = rebuilt; // Revocations arriving while we copy go to both filters
+        int count = 0;
+        for (String key : revocations.keySet()) {
+            rebuilt.put(key);
+            count++;
+        }
+        capacity = newCapacity;
+        filter = rebuilt;
+        rebuilding = null;
+        insertions.set(count);
+        log.info("Rebuilt token revocation filter with {} entries", count);
+    }
+
+    private class ReplicaListener implements EntryAddedListener<String, Long>, EntryUpdatedListener<String, Long> {
+
+        @Override
+        public void entryAdded(EntryEvent<String, Long> event) {
+            addToFilter(event.getKey());
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent<String, Long> event) {
+            addToFilter(event.getKey());
+        }
+    }
+}
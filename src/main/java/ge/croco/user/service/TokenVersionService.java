@@ -0,0 +1,53 @@
+package ge.croco.user.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.replicatedmap.ReplicatedMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks a per-user "not before" instant so that tokens issued before a user was changed or deleted are rejected
+ * without loading the user. Instants live in a replicated map, so every check is a local read.
+ * <p>
+ * The value is a point in time rather than a counter: it only ever moves forward, so it can't reset when the
+ * entry expires and concurrent invalidations on different members can't lose each other.
+ */
+@Service
+public class TokenVersionService {
+
+    public static final String TOKEN_NOT_BEFORE = "token-not-before";
+
+    private final ReplicatedMap<Long, Long> notBefore;
+    private final long expirationMs;
+
+    public TokenVersionService(HazelcastInstance hazelcastInstance,
+                               @Value("${jwt.expiration-ms}") long expirationMs) {
+        this.notBefore = hazelcastInstance.getReplicatedMap(TOKEN_NOT_BEFORE);
+        this.expirationMs = expirationMs;
+    }
+
+    /**
+     * Tokens issued at or before the user's last invalidation are stale. Issue instants have millisecond
+     * precision, a token issued in the same millisecond as the invalidation is rejected too.
+     */
+    public boolean isCurrent(Long userId, Instant issuedAt) {
+        if (userId == null) {
+            return false;
+        }
+        Long invalidatedAt = notBefore.get(userId);
+        return invalidatedAt == null || issuedAt.toEpochMilli() > invalidatedAt;
+    }
+
+    /**
+     * Invalidates every token issued to the user so far. The entry outlives the longest token lifetime from the
+     * latest invalidation, after which all tokens it rejects are expired anyway and it can go.
+     */
+    public void invalidate(Long userId) {
+        long now = System.currentTimeMillis();
+        Long invalidatedAt = notBefore.get(userId);
+        notBefore.put(userId, invalidatedAt == null ? now : Math.max(now, invalidatedAt), expirationMs, TimeUnit.MILLISECONDS);
+    }
+}
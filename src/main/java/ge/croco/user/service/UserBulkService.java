@@ -0,0 +1,11 @@
+package ge.croco.user.service;
+
+import ge.croco.user.model.BulkDeleteRequest;
+import ge.croco.user.model.BulkOperationResult;
+import ge.croco.user.model.BulkRoleChangeRequest;
+
+public interface UserBulkService {
+    BulkOperationResult deleteUsers(BulkDeleteRequest request, Long callerId);
+
+    BulkOperationResult changeRoles(BulkRoleChangeRequest request, Long callerId);
+}
@@ -0,0 +1,143 @@
+package ge.croco.user.service;
+
+import ge.croco.user.cache.PrincipalCache;
+import ge.croco.user.cache.UserCache;
+import ge.croco.user.enums.EventType;
+import ge.croco.user.enums.Role;
+import ge.croco.user.exception.SelfLockoutException;
+import ge.croco.user.model.BulkDeleteRequest;
+import ge.croco.user.model.BulkOperationResult;
+import ge.croco.user.model.BulkRoleChangeRequest;
+import ge.croco.user.model.UserDetails;
+import ge.croco.user.model.UserRow;
+import ge.croco.user.model.mapper.UserMapper;
+import ge.croco.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Admin operations over many users. Every chunk is one set-based statement followed by one batch of cache
+ * writes, token revocations and events.
+ * <p>
+ * The calling admin is never deleted or stripped of ADMIN: naming them by id is rejected and a role selection
+ * skips them, so at least one admin always survives a bulk operation.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserBulkServiceImpl implements UserBulkService {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final UserEventPublisher userEventPublisher;
+    private final TokenVersionService tokenVersionService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final UserCache userCache;
+    private final PrincipalCache principalCache;
+
+    @Override
+    public BulkOperationResult deleteUsers(BulkDeleteRequest request, Long callerId) {
+        requireNotSelected(request.ids(), callerId);
+
+        int affected = forEachChunk(request.ids(), request.hasRole(), callerId, ids -> {
+            List<UserRow> deleted = userRepository.deleteAllReturning(ids);
+            if (deleted.isEmpty()) {
+                return 0;
+            }
+            List<Long> deletedIds = deleted.stream().map(UserRow::getId).toList();
+
+            userCache.tombstoneAllAfterCommit(deletedIds);
+            principalCache.tombstoneAllAfterCommit(usernames(deleted));
+            deletedIds.forEach(tokenVersionService::invalidate);
+            tokenRevocationService.revokeUsers(deletedIds);
+            refreshTokenService.revokeAll(deletedIds);
+            userEventPublisher.publishAll(EventType.USER_DELETED, toDetails(deleted));
+
+            return deleted.size();
+        });
+
+        log.info("Bulk deleted {} users", affected);
+        return new BulkOperationResult(affected);
+    }
+
+    @Override
+    public BulkOperationResult changeRoles(BulkRoleChangeRequest request, Long callerId) {
+        int grant = Role.toMask(request.grant());
+        int revoke = Role.toMask(request.revoke());
+
+        // Other role changes may include the caller, only losing ADMIN could lock everyone out
+        Long protectedId = (revoke & Role.ADMIN.getMask()) != 0 ? callerId : null;
+        requireNotSelected(request.ids(), protectedId);
+
+        int affected = forEachChunk(request.ids(), request.hasRole(), protectedId, ids -> {
+            // Only rows whose roles actually change come back
+            List<UserRow> updated = userRepository.updateRolesReturning(ids, grant, revoke);
+            if (updated.isEmpty()) {
+                return 0;
+            }
+            List<Long> updatedIds = updated.stream().map(UserRow::getId).toList();
+
+            List<UserDetails> details = toDetails(updated);
+
+            userCache.putAllAfterCommit(details);
+            principalCache.putAllAfterCommit(details);
+            updatedIds.forEach(tokenVersionService::invalidate);
+            tokenRevocationService.revokeUsers(updatedIds);
+            userEventPublisher.publishAll(EventType.USER_UPDATED, details, Set.of("roles"));
+
+            return updated.size();
+        });
+
+        log.info("Bulk changed roles of {} users", affected);
+        return new BulkOperationResult(affected);
+    }
+
+    private static void requireNotSelected(List<Long> ids, Long protectedId) {
+        if (ids != null && protectedId != null && ids.contains(protectedId)) {
+            throw new SelfLockoutException(protectedId);
+        }
+    }
+
+    private int forEachChunk(List<Long> ids, Role hasRole, Long excludedId, ToIntFunction<List<Long>> operation) {
+        int affected = 0;
+        if (ids != null) {
+            List<Long> distinctIds = ids.stream().distinct().toList();
+            for (int from = 0; from < distinctIds.size(); from += CHUNK_SIZE) {
+                affected += operation.applyAsInt(distinctIds.subList(from, Math.min(from + CHUNK_SIZE, distinctIds.size())));
+            }
+            return affected;
+        }
+
+        // Seek by id so rows the operation changed or removed don't shift the next chunk
+        long afterId = 0;
+        List<Long> chunk;
+        do {
+            chunk = userRepository.findIdsWithRole(afterId, hasRole.getMask(), CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<Long> selected = excludedId == null ? chunk : chunk.stream().filter(id -> !id.equals(excludedId)).toList();
+            if (!selected.isEmpty()) {
+                affected += operation.applyAsInt(selected);
+            }
+            afterId = chunk.get(chunk.size() - 1);
+        } while (chunk.size() == CHUNK_SIZE);
+
+        return affected;
+    }
+
+    private static List<String> usernames(List<UserRow> rows) {
+        return rows.stream().map(UserRow::getUsername).toList();
+    }
+
+    private static List<UserDetails> toDetails(List<UserRow> rows) {
+        return rows.stream().map(UserMapper::toDetails).toList();
+    }
+}
@@ -0,0 +1,78 @@
+package ge.croco.user.service;
+
+import ge.croco.user.enums.EventType;
+import ge.croco.user.model.UserDetails;
+import ge.croco.user.model.UserEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserEventPublisher {
+
+    private static final String USERS_TOPIC = "users";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    public void publish(EventType eventType, UserDetails user) {
+        publish(eventType, user, null);
+    }
+
+    public void publish(EventType eventType, UserDetails user, Set<String> changedFields) {
+        UserEvent userEvent = new UserEvent(
+                eventType,
+                Instant.now(),
+                user,
+                changedFields
+        );
+        log.info("Sending user event: {}", userEvent);
+        try {
+            kafkaTemplate.send(USERS_TOPIC, userEvent.getUsername(), userEvent).get(3, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("Failed to send user event: {}", userEvent, e);
+        }
+    }
+
+    /**
+     * Sends all events without waiting in between so the producer can batch them, then waits once for the lot.
+     */
+    public void publishAll(EventType eventType, List<UserDetails> users) {
+        publishAll(eventType, users, null);
+    }
+
+    public void publishAll(EventType eventType, List<UserDetails> users, Set<String> changedFields) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Instant timestamp = Instant.now();
+        log.info("Sending {} {} events", users.size(), eventType);
+        CompletableFuture<?>[] sends = users.stream()
+                .map(user -> new UserEvent(eventType, timestamp, user, changedFields))
+                .map(userEvent -> kafkaTemplate.send(USERS_TOPIC, userEvent.getUsername(), userEvent))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(sends).get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("Failed to send {} of {} {} events", countFailed(sends), users.size(), eventType, e);
+        }
+    }
+
+    private static long countFailed(CompletableFuture<?>[] sends) {
+        long failed = 0;
+        for (CompletableFuture<?> send : sends) {
+            if (!send.isDone() || send.isCompletedExceptionally()) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,10 @@
+package ge.croco.user.service;
+
+import ge.croco.user.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface UserExportService {
+    void exportUsers(OutputStream output, ExportFormat format) throws IOException;
+}
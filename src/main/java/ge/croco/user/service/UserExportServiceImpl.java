@@ -0,0 +1,73 @@
+package ge.croco.user.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ge.croco.user.enums.ExportFormat;
+import ge.croco.user.enums.Role;
+import ge.croco.user.model.UserDetails;
+import ge.croco.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserExportServiceImpl implements UserExportService {
+
+    private static final String CSV_HEADER = "id,username,email,roles";
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes every user as it comes off the database cursor. The transaction keeps the cursor open
+     * and only projections are read, so nothing accumulates in the persistence context.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(OutputStream output, ExportFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        long exported = 0;
+
+        try (Stream<UserDetails> users = userRepository.streamAllDetails()) {
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            Iterator<UserDetails> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                UserDetails user = iterator.next();
+                writer.write(format == ExportFormat.CSV ? toCsv(user) : objectMapper.writeValueAsString(user));
+                writer.write('\n');
+                exported++;
+            }
+        }
+        writer.flush();
+        log.info("Exported {} users as {}", exported, format);
+    }
+
+    private static String toCsv(UserDetails user) {
+        String roles = user.getRoles().stream()
+                .map(Role::name)
+                .collect(Collectors.joining("|"));
+        return String.join(",", String.valueOf(user.getId()), csvValue(user.getUsername()), csvValue(user.getEmail()), roles);
+    }
+
+    // RFC 4180 quoting, only when the value needs it
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,10 @@
+package ge.croco.user.service;
+
+import ge.croco.user.enums.ImportFormat;
+import ge.croco.user.model.ImportReport;
+
+import java.io.InputStream;
+
+public interface UserImportService {
+    ImportReport importUsers(InputStream input, ImportFormat format);
+}
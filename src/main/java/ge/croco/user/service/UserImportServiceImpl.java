@@ -0,0 +1,211 @@
+package ge.croco.user.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ge.croco.user.domain.User;
+import ge.croco.user.enums.EventType;
+import ge.croco.user.enums.ImportFormat;
+import ge.croco.user.enums.ImportStatus;
+import ge.croco.user.enums.Role;
+import ge.croco.user.exception.UserAlreadyExistsException;
+import ge.croco.user.model.ImportRecordResult;
+import ge.croco.user.model.ImportReport;
+import ge.croco.user.model.UserDetails;
+import ge.croco.user.model.UserRequest;
+import ge.croco.user.model.mapper.UserMapper;
+import ge.croco.user.repository.UserRepository;
+import ge.croco.user.security.BulkheadPasswordEncoder;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportServiceImpl implements UserImportService {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final BulkheadPasswordEncoder passwordEncoder;
+    private final UserEventPublisher userEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Override
+    public ImportReport importUsers(InputStream input, ImportFormat format) {
+        List<ImportRecordResult> results = new ArrayList<>();
+        List<PendingUser> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            int line = 0;
+            String row;
+            while ((row = reader.readLine()) != null) {
+                line++;
+                if (row.isBlank() || (format == ImportFormat.CSV && line == 1)) {
+                    continue; // Skip blank lines and the CSV header
+                }
+                try {
+                    chunk.add(new PendingUser(line, parse(row, format)));
+                } catch (IllegalArgumentException e) {
+                    results.add(ImportRecordResult.failed(line, null, e.getMessage()));
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    results.addAll(importChunk(chunk));
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read import input", e);
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(importChunk(chunk));
+        }
+
+        results.sort(Comparator.comparingInt(ImportRecordResult::line));
+        int created = (int) results.stream()
+                .filter(result -> result.status() == ImportStatus.CREATED)
+                .count();
+        log.info("Imported {} of {} users", created, results.size());
+
+        return new ImportReport(results.size(), created, results.size() - created, results);
+    }
+
+    private List<ImportRecordResult> importChunk(List<PendingUser> chunk) {
+        List<ImportRecordResult> results = new ArrayList<>(chunk.size());
+        List<PendingUser> accepted = rejectDuplicates(chunk, results);
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        List<String> hashes = passwordEncoder.encodeAll(accepted.stream()
+                .map(pending -> pending.request().password())
+                .toList());
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            User user = UserMapper.toEntity(accepted.get(i).request());
+            user.setPassword(hashes.get(i));
+            users.add(user);
+        }
+
+        List<UserDetails> created = new ArrayList<>(users.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.saveAllAndFlush(users));
+            for (int i = 0; i < users.size(); i++) {
+                UserDetails userDetails = UserMapper.toDetails(users.get(i));
+                created.add(userDetails);
+                results.add(ImportRecordResult.created(accepted.get(i).line(), userDetails));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent writer took one of the keys, fall back to row by row to find out which
+            log.warn("Batch insert of {} users failed, retrying one by one", users.size());
+            for (int i = 0; i < users.size(); i++) {
+                results.add(insertOne(accepted.get(i).line(), users.get(i), created));
+            }
+        }
+
+        userEventPublisher.publishAll(EventType.USER_CREATED, created);
+        return results;
+    }
+
+    private List<PendingUser> rejectDuplicates(List<PendingUser> chunk, List<ImportRecordResult> results) {
+        Set<String> usernames = chunk.stream()
+                .map(pending -> pending.request().username())
+                .collect(Collectors.toSet());
+        Set<String> emails = chunk.stream()
+                .map(pending -> pending.request().email())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (UserDetails existing : userRepository.findDetailsByUsernameInOrEmailIn(usernames, emails)) {
+            takenUsernames.add(existing.getUsername());
+            takenEmails.add(existing.getEmail());
+        }
+
+        List<PendingUser> accepted = new ArrayList<>(chunk.size());
+        for (PendingUser pending : chunk) {
+            UserRequest request = pending.request();
+            if (takenUsernames.contains(request.username())) {
+                results.add(duplicate(pending.line(), request.username(), request.username()));
+            } else if (request.email() != null && takenEmails.contains(request.email())) {
+                results.add(duplicate(pending.line(), request.username(), request.email()));
+            } else {
+                takenUsernames.add(request.username()); // Later rows of the same file can't reuse the keys
+                takenEmails.add(request.email());
+                accepted.add(pending);
+            }
+        }
+        return accepted;
+    }
+
+    private ImportRecordResult insertOne(int line, User user, List<UserDetails> created) {
+        // Drop the id and version the rolled back batch assigned, otherwise the entity isn't new and gets merged
+        user.setId(null);
+        user.setVersion(null);
+        try {
+            UserDetails userDetails = UserMapper.toDetails(userRepository.saveAndFlush(user));
+            created.add(userDetails);
+            return ImportRecordResult.created(line, userDetails);
+        } catch (DataIntegrityViolationException e) {
+            String error = UserAlreadyExistsException.translate(e, user.getUsername(), user.getEmail()).getMessage();
+            return ImportRecordResult.failed(line, user.getUsername(), error);
+        }
+    }
+
+    private UserRequest parse(String row, ImportFormat format) {
+        UserRequest request = switch (format) {
+            case NDJSON -> readJson(row);
+            case CSV -> readCsv(row);
+        };
+
+        Set<ConstraintViolation<UserRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.joining(", ")));
+        }
+        return request;
+    }
+
+    private UserRequest readJson(String row) {
+        try {
+            return objectMapper.readValue(row, UserRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    // username,email,password,roles with roles separated by '|', values must not contain commas
+    private UserRequest readCsv(String row) {
+        String[] columns = row.split(",", -1);
+        if (columns.length != 4) {
+            throw new IllegalArgumentException("Expected 4 columns: username,email,password,roles");
+        }
+        Set<Role> roles = Arrays.stream(columns[3].split("\\|"))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .map(Role::valueOf)
+                .collect(Collectors.toSet());
+
+        return new UserRequest(columns[0].trim(), columns[1].trim(), columns[2], roles);
+    }
+
+    private static ImportRecordResult duplicate(int line, String username, String value) {
+        return ImportRecordResult.failed(line, username, new UserAlreadyExistsException(value).getMessage());
+    }
+
+    private record PendingUser(int line, UserRequest request) {
+    }
+}
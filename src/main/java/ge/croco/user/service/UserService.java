@@ -1,5 +1,9 @@
 package ge.croco.user.service;
 
+import ge.croco.user.enums.UserSort;
+import ge.croco.user.model.CursorPage;
+import ge.croco.user.model.PatchMeRequest;
+import ge.croco.user.model.PatchUserRequest;
 import ge.croco.user.model.UpdateMeRequest;
 import ge.croco.user.model.UserDetails;
 import ge.croco.user.model.UserRequest;
@@ -11,13 +15,21 @@ public interface UserService
 {
     UserDetails createUser(UserRequest user);
 
-    UserDetails updateUser(Long id, UserRequest userRequest);
+    UserDetails updateUser(Long id, UserRequest userRequest, Long expectedVersion);
 
-    void deleteUser(Long id);
+    void deleteUser(Long id, Long expectedVersion);
 
     List<UserDetails> getUsers(Pageable pageable);
 
+    CursorPage<UserDetails> getUsers(String cursor, int size, UserSort sort);
+
     UserDetails getUser(Long id);
 
-    UserDetails updateMe(Long id, UpdateMeRequest user);
+    List<UserDetails> searchUsers(String query, int limit);
+
+    UserDetails updateMe(Long id, UpdateMeRequest user, Long expectedVersion);
+
+    UserDetails patchUser(Long id, PatchUserRequest patch, Long expectedVersion);
+
+    UserDetails patchMe(Long id, PatchMeRequest patch, Long expectedVersion);
 }
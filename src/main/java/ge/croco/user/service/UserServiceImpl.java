@@ -1,47 +1,67 @@
 package ge.croco.user.service;
 
+import ge.croco.user.annotation.ReadFromPrimary;
+import ge.croco.user.cache.PrincipalCache;
+import ge.croco.user.cache.UserCache;
 import ge.croco.user.domain.User;
 import ge.croco.user.enums.EventType;
+import ge.croco.user.enums.Role;
+import ge.croco.user.enums.UserSort;
+import ge.croco.user.exception.InvalidSearchQueryException;
 import ge.croco.user.exception.UserAlreadyExistsException;
 import ge.croco.user.exception.UserNotFoundException;
+import ge.croco.user.exception.UserVersionConflictException;
+import ge.croco.user.model.CursorPage;
+import ge.croco.user.model.PatchMeRequest;
+import ge.croco.user.model.PatchUserRequest;
 import ge.croco.user.model.UpdateMeRequest;
 import ge.croco.user.model.UserDetails;
-import ge.croco.user.model.UserEvent;
+import ge.croco.user.model.UserListRow;
 import ge.croco.user.model.UserRequest;
+import ge.croco.user.model.UserRow;
+import ge.croco.user.model.UserUpdateRow;
 import ge.croco.user.model.mapper.UserMapper;
 import ge.croco.user.repository.UserRepository;
+import ge.croco.user.util.UserCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.Instant;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
-    private static final String USERS_CACHE = "users";
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MIN_SEARCH_LENGTH = 3; // Shorter terms have no trigram to look up
+    private static final int SEARCH_CANDIDATES = 500; // Nearest matches per column that get ranked
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final UserEventPublisher userEventPublisher;
+    private final TokenVersionService tokenVersionService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final PrincipalCache principalCache;
+    private final UserCache userCache;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public UserDetails createUser(UserRequest userRequest) {
-        if (userRepository.existsByUsername(userRequest.username())) {
-            throw new UserAlreadyExistsException(userRequest.username());
-        }
-        if (userRepository.existsByEmail(userRequest.email())) {
-            throw new UserAlreadyExistsException(userRequest.email());
-        }
         User user = UserMapper.toEntity(userRequest);
         user.setPassword(passwordEncoder.encode(user.getPassword()));
 
@@ -49,98 +69,237 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    @CacheEvict(value = USERS_CACHE, key = "#id")
-    public UserDetails updateUser(Long id, UserRequest userRequest) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
+    public UserDetails updateUser(Long id, UserRequest userRequest, Long expectedVersion) {
+        String password = passwordEncoder.encode(userRequest.password());
+        UserUpdateRow row = writeOrConflict(id, userRequest.username(), userRequest.email(),
+                () -> userRepository.updateUser(id, userRequest.username(), userRequest.email(), password,
+                        Role.toMask(userRequest.roles()), expectedVersion != null, versionOrZero(expectedVersion)));
 
-        checkUpdateUsername(user.getUsername(), userRequest.username());
-        checkUpdateEmail(user.getEmail(), userRequest.email());
-
-        user.setUsername(userRequest.username());
-        user.setEmail(userRequest.email());
-        user.setPassword(passwordEncoder.encode(userRequest.password()));
-        user.setRoles(userRequest.roles());
+        UserDetails userDetails = UserMapper.toDetails(row);
+        userCache.putAfterCommit(userDetails);
+        principalCache.putAfterCommit(userDetails, row.getPreviousUsername());
+        userEventPublisher.publish(EventType.USER_UPDATED, userDetails);
+        tokenVersionService.invalidate(id);
+        refreshTokenService.revokeAll(id); // Credentials were rewritten
+        if (!Objects.equals(row.getPreviousRoles(), row.getRoles())) {
+            tokenRevocationService.revokeUser(id);
+        }
 
-        return saveUser(EventType.USER_UPDATED, user);
+        return userDetails;
     }
 
     @Override
-    @CacheEvict(value = USERS_CACHE, key = "#id")
-    public void deleteUser(Long id) {
-        userRepository.findById(id).ifPresent(user -> {
-            userRepository.delete(user);
-            sendUserEvent(EventType.USER_DELETED, UserMapper.toDetails(user));
-        });
+    public void deleteUser(Long id, Long expectedVersion) {
+        Optional<UserRow> deleted = userRepository.deleteReturning(id, expectedVersion != null, versionOrZero(expectedVersion));
+        if (deleted.isEmpty()) {
+            if (expectedVersion != null && userRepository.existsById(id)) {
+                throw new UserVersionConflictException(id);
+            }
+            return; // Already gone
+        }
+
+        userCache.tombstoneAfterCommit(id);
+        principalCache.tombstoneAllAfterCommit(Set.of(deleted.get().getUsername()));
+        tokenVersionService.invalidate(id);
+        tokenRevocationService.revokeUser(id);
+        refreshTokenService.revokeAll(id);
+        userEventPublisher.publish(EventType.USER_DELETED, UserMapper.toDetails(deleted.get()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<UserDetails> getUsers(Pageable pageable) {
-        return userRepository.findAll(pageable)
+        return userRepository.findAllDetails(pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<UserDetails> getUsers(String cursor, int size, UserSort sort) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Pageable limit = PageRequest.ofSize(pageSize + 1); // One extra row tells whether another page exists
+        UserCursor after = cursor == null || cursor.isBlank() ? null : UserCursor.decode(cursor, sort);
+
+        List<UserListRow> rows = switch (sort) {
+            case ID -> userRepository.findListRowsAfterId(after == null ? 0L : after.id(), limit);
+            case CREATED_AT -> after == null
+                    ? userRepository.findListRowsByCreatedAt(limit)
+                    : userRepository.findListRowsAfterCreatedAt(after.createdAt(), after.id(), limit);
+        };
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            UserListRow last = rows.get(pageSize - 1);
+            nextCursor = new UserCursor(sort, last.createdAt(), last.details().getId()).encode();
+        }
+
+        return new CursorPage<>(rows.stream().map(UserListRow::details).toList(), nextCursor);
+    }
+
+    @Override
+    @ReadFromPrimary // A fill from a lagging replica would be served until the entry expires
+    public UserDetails getUser(Long id) {
+        return userCache.get(id, () -> userRepository.findDetailsById(id))
+                .orElseThrow(() -> new UserNotFoundException(id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDetails> searchUsers(String query, int limit) {
+        String term = query == null ? "" : query.strip().toLowerCase(Locale.ROOT);
+        if (term.length() < MIN_SEARCH_LENGTH) {
+            throw new InvalidSearchQueryException(MIN_SEARCH_LENGTH);
+        }
+        String escaped = term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+
+        int resultLimit = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        return userRepository.search(term, escaped + "%", "%" + escaped + "%", SEARCH_CANDIDATES, resultLimit)
                 .stream()
                 .map(UserMapper::toDetails)
                 .toList();
     }
 
     @Override
-    @Cacheable(value = USERS_CACHE, key = "#id")
-    public UserDetails getUser(Long id) {
-        System.out.println("getUser: " + id);
-        return userRepository.findById(id)
-                .map(UserMapper::toDetails)
-                .orElseThrow(() -> new UserNotFoundException(id));
+    public UserDetails updateMe(Long id, UpdateMeRequest userMe, Long expectedVersion) {
+        String password = passwordEncoder.encode(userMe.password());
+        UserUpdateRow row = writeOrConflict(id, userMe.username(), userMe.email(),
+                () -> userRepository.updateCredentials(id, userMe.username(), userMe.email(), password,
+                        expectedVersion != null, versionOrZero(expectedVersion)));
+
+        UserDetails userDetails = UserMapper.toDetails(row);
+        userCache.putAfterCommit(userDetails);
+        principalCache.putAfterCommit(userDetails, row.getPreviousUsername());
+        userEventPublisher.publish(EventType.USER_UPDATED, userDetails);
+        tokenVersionService.invalidate(id);
+        refreshTokenService.revokeAll(id); // Credentials were rewritten
+
+        return userDetails;
     }
 
+    // The password is hashed before the transaction starts, so BCrypt doesn't hold a pooled connection
     @Override
-    @CacheEvict(value = USERS_CACHE, key = "#id")
-    public UserDetails updateMe(Long id, UpdateMeRequest userMe) {
+    public UserDetails patchUser(Long id, PatchUserRequest patch, Long expectedVersion) {
+        String passwordHash = encodeIfPresent(patch.password());
+
+        return transactionTemplate.execute(status -> {
+            User user = findForPatch(id, expectedVersion);
+            String previousUsername = user.getUsername();
+
+            Set<String> changedFields = applyPatch(user, patch.username(), patch.email(), passwordHash);
+            if (patch.roles() != null && !patch.roles().equals(user.getRoles())) {
+                user.setRoles(patch.roles());
+                changedFields.add("roles");
+            }
+
+            return savePatch(user, previousUsername, changedFields);
+        });
+    }
+
+    @Override
+    public UserDetails patchMe(Long id, PatchMeRequest patch, Long expectedVersion) {
+        String passwordHash = encodeIfPresent(patch.password());
+
+        return transactionTemplate.execute(status -> {
+            User user = findForPatch(id, expectedVersion);
+            String previousUsername = user.getUsername();
+
+            Set<String> changedFields = applyPatch(user, patch.username(), patch.email(), passwordHash);
+
+            return savePatch(user, previousUsername, changedFields);
+        });
+    }
+
+    private String encodeIfPresent(String password) {
+        return password == null ? null : passwordEncoder.encode(password);
+    }
+
+    // The @Version check on flush catches writes that land between this read and the update
+    private User findForPatch(Long id, Long expectedVersion) {
         User user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException(id));
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new UserVersionConflictException(id);
+        }
+        return user;
+    }
 
-        checkUpdateUsername(user.getUsername(), userMe.username());
-        checkUpdateEmail(user.getEmail(), userMe.email());
+    private Set<String> applyPatch(User user, String username, String email, String passwordHash) {
+        Set<String> changedFields = new LinkedHashSet<>();
+        if (username != null && !username.equals(user.getUsername())) {
+            user.setUsername(username);
+            changedFields.add("username");
+        }
+        if (email != null && !email.equals(user.getEmail())) {
+            user.setEmail(email);
+            changedFields.add("email");
+        }
+        if (passwordHash != null) {
+            // Comparing against the stored hash would cost as much as hashing, so a supplied password is a change
+            user.setPassword(passwordHash);
+            changedFields.add("password");
+        }
+        return changedFields;
+    }
 
-        user.setUsername(userMe.username());
-        user.setEmail(userMe.email());
-        user.setPassword(passwordEncoder.encode(userMe.password()));
+    private UserDetails savePatch(User user, String previousUsername, Set<String> changedFields) {
+        if (changedFields.isEmpty()) {
+            return UserMapper.toDetails(user); // Nothing to write
+        }
+
+        saveAndFlush(user); // Dynamic update writes only the dirty columns
+        UserDetails userDetails = UserMapper.toDetails(user);
+        userCache.putAfterCommit(userDetails);
+        userEventPublisher.publish(EventType.USER_UPDATED, userDetails, changedFields);
 
-        return saveUser(EventType.USER_UPDATED, user);
+        if (changedFields.contains("username") || changedFields.contains("password") || changedFields.contains("roles")) {
+            principalCache.putAfterCommit(userDetails, previousUsername);
+            tokenVersionService.invalidate(user.getId());
+        }
+        if (changedFields.contains("roles")) {
+            tokenRevocationService.revokeUser(user.getId());
+        }
+        if (changedFields.contains("password")) {
+            refreshTokenService.revokeAll(user.getId());
+        }
+
+        return userDetails;
     }
 
     private UserDetails saveUser(EventType eventType, User user) {
-        userRepository.save(user);
+        saveAndFlush(user);
         UserDetails userDetails = UserMapper.toDetails(user);
-        sendUserEvent(eventType, userDetails);
+        userEventPublisher.publish(eventType, userDetails);
 
         return userDetails;
     }
 
-    private void sendUserEvent(EventType eventType, UserDetails user) {
-        UserEvent userEvent = new UserEvent(
-                eventType,
-                Instant.now(),
-                user
-        );
-        log.info("Sending user event: {}", userEvent);
+    /**
+     * Runs a conditional single-statement write. No row back means the user is gone or its version moved on.
+     */
+    private <T> T writeOrConflict(Long id, String username, String email, Supplier<Optional<T>> write) {
+        Optional<T> row;
         try {
-            kafkaTemplate.send("users", userEvent.getUsername(), userEvent).get(3, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            log.warn("Failed to send user event: {}", userEvent, e);
+            row = write.get();
+        } catch (DataIntegrityViolationException e) {
+            throw UserAlreadyExistsException.translate(e, username, email);
         }
+        return row.orElseThrow(() -> userRepository.existsById(id)
+                ? new UserVersionConflictException(id)
+                : new UserNotFoundException(id));
     }
 
-    private void checkUpdateUsername(String oldUsername, String newUsername  ) {
-        if (!oldUsername.equals(newUsername)) {
-            if (userRepository.existsByUsername(newUsername)) {
-                throw new UserAlreadyExistsException(newUsername);
-            }
-        }
+    private static long versionOrZero(Long version) {
+        return version == null ? 0 : version;
     }
 
-    private void checkUpdateEmail(String oldEmail, String newEmail  ) {
-        if (!oldEmail.equals(newEmail)) {
-            if (userRepository.existsByUsername(newEmail)) {
-                throw new UserAlreadyExistsException(newEmail);
-            }
+    /**
+     * Relies on the unique constraints instead of pre-checking, which costs extra round-trips and still races.
+     */
+    private void saveAndFlush(User user) {
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw UserAlreadyExistsException.translate(e, user.getUsername(), user.getEmail());
         }
     }
 }
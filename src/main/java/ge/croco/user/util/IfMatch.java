@@ -0,0 +1,28 @@
+package ge.croco.user.util;
+
+public class IfMatch {
+
+    private static final long NEVER_MATCHES = -1;
+
+    private IfMatch() {
+    }
+
+    /**
+     * Reads the user version from an If-Match header such as {@code "3"} or {@code W/"3"}.
+     * Returns null when the header is absent or {@code *}, a malformed tag yields a version no row has.
+     */
+    public static Long version(String header) {
+        if (header == null || header.isBlank() || header.strip().equals("*")) {
+            return null;
+        }
+        String tag = header.strip();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        try {
+            return Long.parseLong(tag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return NEVER_MATCHES;
+        }
+    }
+}
@@ -5,9 +5,19 @@ import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
 public class PasswordValidator implements ConstraintValidator<ValidPassword, String> {
+
+    private boolean optional;
+
+    @Override
+    public void initialize(ValidPassword constraintAnnotation) {
+        this.optional = constraintAnnotation.optional();
+    }
+
     @Override
     public boolean isValid(String password, ConstraintValidatorContext context) {
-        return password != null &&
-                password.matches("^(?=.*[A-Za-z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]{8,}$");
+        if (password == null) {
+            return optional;
+        }
+        return password.matches("^(?=.*[A-Za-z])(?=.*\\d)(?=.*[@$!%*?&])[A-Za-z\\d@$!%*?&]{8,}$");
     }
 }
@@ -0,0 +1,40 @@
+package ge.croco.user.util;
+
+import ge.croco.user.enums.UserSort;
+import ge.croco.user.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position after the last row of a keyset page, encoded as an opaque URL-safe token.
+ */
+public record UserCursor(UserSort sort, LocalDateTime createdAt, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = sort == UserSort.CREATED_AT
+                ? sort + SEPARATOR + createdAt + SEPARATOR + id
+                : sort + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserCursor decode(String cursor, UserSort expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR);
+            UserSort sort = UserSort.valueOf(parts[0]);
+            if (sort != expectedSort) {
+                throw new InvalidCursorException(cursor); // Cursor belongs to a listing with another order
+            }
+            return sort == UserSort.CREATED_AT
+                    ? new UserCursor(sort, LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]))
+                    : new UserCursor(sort, null, Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
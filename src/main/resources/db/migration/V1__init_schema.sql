@@ -0,0 +1,52 @@
+-- Baseline schema. Every statement is idempotent so databases created by ddl-auto are brought up to date
+-- as well (spring.flyway.baseline-version is 0, so this runs on them too).
+
+CREATE TABLE IF NOT EXISTS users (
+    id         bigint       NOT NULL PRIMARY KEY,
+    username   varchar(255) NOT NULL,
+    password   varchar(255) NOT NULL,
+    email      varchar(255) NOT NULL,
+    roles      integer      NOT NULL DEFAULT 0,
+    created_at timestamp(6)
+);
+
+-- Ids come from users_seq since bulk import, older tables still have an identity column
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+-- Roles used to live in the user_roles collection table.
+-- Bits follow Role#getMask(): ADMIN = 1, USER = 2, MODERATOR = 4.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS roles integer NOT NULL DEFAULT 0;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'user_roles') THEN
+        UPDATE users u
+        SET roles = r.mask
+        FROM (SELECT user_id,
+                     bit_or(CASE roles
+                                WHEN 'ADMIN' THEN 1
+                                WHEN 'USER' THEN 2
+                                WHEN 'MODERATOR' THEN 4
+                                ELSE 0
+                            END) AS mask
+              FROM user_roles
+              GROUP BY user_id) r
+        WHERE u.id = r.user_id;
+
+        DROP TABLE user_roles;
+    END IF;
+END $$;
+
+-- Pooled sequence, the increment must match User's allocationSize. Hibernate hands out the 50 ids
+-- below each value it fetches, so an existing table needs the sequence at least 50 past its max id.
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+
+SELECT setval('users_seq', s.max_id + 50, false)
+FROM (SELECT max(id) AS max_id FROM users) s
+WHERE s.max_id > (SELECT last_value FROM users_seq);
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    token_hash varchar(255)                NOT NULL PRIMARY KEY,
+    user_id    bigint                      NOT NULL,
+    expires_at timestamp(6) with time zone NOT NULL
+);
@@ -0,0 +1,28 @@
+-- Indexes for the actual access patterns. Replaces whatever unique constraints ddl-auto left behind.
+
+DO $$
+DECLARE
+    constraint_name text;
+BEGIN
+    FOR constraint_name IN
+        SELECT conname FROM pg_constraint WHERE conrelid = 'users'::regclass AND contype = 'u'
+    LOOP
+        EXECUTE format('ALTER TABLE users DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+END $$;
+
+-- Username uniqueness and the login lookup. INCLUDE lets findCredentialsByUsername
+-- (id, username, password, roles) run as an index-only scan.
+ALTER TABLE users ADD CONSTRAINT uk_users_username UNIQUE (username) INCLUDE (id, password, roles);
+
+-- Email uniqueness
+ALTER TABLE users ADD CONSTRAINT uk_users_email UNIQUE (email);
+
+-- Keyset listing ordered by (created_at, id), the id ordering is served by the primary key
+CREATE INDEX IF NOT EXISTS idx_users_created_at_id ON users (created_at, id);
+
+-- Refresh token revocation by user
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_id ON refresh_tokens (user_id);
+
+-- Scheduled purge of expired refresh tokens
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
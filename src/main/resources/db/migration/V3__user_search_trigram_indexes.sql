@@ -0,0 +1,9 @@
+-- Trigram indexes for the admin search, they serve LIKE '%term%' on the lower-cased columns
+-- and the nearest-neighbour ordering (<->) that bounds how many matches get ranked.
+-- pg_trgm is a trusted extension, the database owner can create it.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gist (lower(username) gist_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING gist (lower(email) gist_trgm_ops);
@@ -0,0 +1,3 @@
+-- Optimistic locking counter, bumped by every write to a user row
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,64 @@
+package ge.croco.user;
+
+import ge.croco.user.domain.CustomUserDetails;
+import ge.croco.user.model.JWTResponse;
+import ge.croco.user.model.RefreshSession;
+import ge.croco.user.security.JwtTokenUtil;
+import ge.croco.user.service.AuthServiceImpl;
+import ge.croco.user.service.CustomUserDetailsService;
+import ge.croco.user.service.RefreshTokenService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthServiceTest {
+
+    @InjectMocks
+    private AuthServiceImpl authService;
+
+    @Mock
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @Test
+    void refresh_RotatesRefreshToken() {
+        CustomUserDetails user = new CustomUserDetails(7L, "refresher", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        when(refreshTokenService.consume("old-refresh")).thenReturn(Optional.of(new RefreshSession(7L, Long.MAX_VALUE)));
+        when(userDetailsService.loadUserById(7L)).thenReturn(user);
+        when(jwtTokenUtil.generateToken(user)).thenReturn("access");
+        when(refreshTokenService.issue(7L)).thenReturn("new-refresh");
+
+        JWTResponse response = authService.refresh("old-refresh");
+
+        assertThat(response.token()).isEqualTo("access");
+        assertThat(response.refreshToken()).isEqualTo("new-refresh");
+    }
+
+    @Test
+    void refreshWithConsumedToken_IsRejected() {
+        when(refreshTokenService.consume("reused")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> authService.refresh("reused")).isInstanceOf(BadCredentialsException.class);
+        verify(refreshTokenService, never()).issue(anyLong());
+    }
+}
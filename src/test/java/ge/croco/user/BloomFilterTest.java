@@ -0,0 +1,31 @@
+package ge.croco.user;
+
+import ge.croco.user.util.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BloomFilterTest {
+
+    @Test
+    void addedKeys_AlwaysMightContain() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> filter.put("t:" + i));
+
+        assertThat(IntStream.range(0, 1000).allMatch(i -> filter.mightContain("t:" + i))).isTrue();
+    }
+
+    @Test
+    void unknownKeys_FalsePositiveRateWithinBound() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> filter.put("t:" + i));
+
+        long falsePositives = IntStream.range(0, 10000)
+                .filter(i -> filter.mightContain("u:" + i))
+                .count();
+
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
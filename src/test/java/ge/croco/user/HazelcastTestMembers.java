@@ -0,0 +1,60 @@
+package ge.croco.user;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import ge.croco.user.cache.TwoTierCacheManager;
+import ge.croco.user.config.CacheConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Embedded Hazelcast members on localhost forming their own cluster, for tests of Hazelcast-backed services.
+ */
+final class HazelcastTestMembers {
+
+    private HazelcastTestMembers() {
+    }
+
+    static List<HazelcastInstance> start(int count) {
+        String clusterName = "test-" + UUID.randomUUID();
+        List<HazelcastInstance> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Config config = new Config().setClusterName(clusterName);
+            config.setProperty("hazelcast.logging.type", "slf4j");
+            JoinConfig join = config.getNetworkConfig().getJoin();
+            join.getMulticastConfig().setEnabled(false);
+            join.getAutoDetectionConfig().setEnabled(false);
+            join.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+            CacheConfig.registerCompactSerializers(config.getSerializationConfig());
+            members.add(Hazelcast.newHazelcastInstance(config));
+        }
+        return members;
+    }
+
+    static TwoTierCacheManager cacheManager(HazelcastInstance member, MeterRegistry meterRegistry) {
+        return new TwoTierCacheManager(new HazelcastCacheManager(member), member, meterRegistry, 1000, Duration.ofMinutes(1));
+    }
+
+    static void shutdown(List<HazelcastInstance> members) {
+        members.forEach(HazelcastInstance::shutdown);
+    }
+
+    // Invalidations travel over a topic, so effects on other members are only eventually visible
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within 10 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
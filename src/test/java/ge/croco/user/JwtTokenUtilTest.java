@@ -0,0 +1,62 @@
+package ge.croco.user;
+
+import ge.croco.user.domain.CustomUserDetails;
+import ge.croco.user.security.JwtTokenUtil;
+import io.jsonwebtoken.security.SignatureException;
+import io.jsonwebtoken.security.WeakKeyException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JwtTokenUtilTest {
+
+    private final CustomUserDetails user = new CustomUserDetails(1L, "jwtuser", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    @Test
+    void rotatedSecret_PreviousTokensVerifyWithinGrace() {
+        String oldSecret = secret();
+        String newSecret = secret();
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil(oldSecret, 1800000);
+        String oldToken = jwtTokenUtil.generateToken(user);
+
+        jwtTokenUtil.useSecrets(newSecret, oldSecret, Instant.now().plusSeconds(60));
+        String newToken = jwtTokenUtil.generateToken(user);
+
+        assertThat(jwtTokenUtil.extractUsername(oldToken)).isEqualTo("jwtuser");
+        assertThat(jwtTokenUtil.extractUsername(newToken)).isEqualTo("jwtuser");
+        // New tokens are signed with the new secret only
+        assertThatThrownBy(() -> JwtTokenUtil.extractAllClaims(newToken, oldSecret)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void rotatedSecret_PreviousTokensRejectedAfterGrace() {
+        String oldSecret = secret();
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil(oldSecret, 1800000);
+        String oldToken = jwtTokenUtil.generateToken(user);
+
+        jwtTokenUtil.useSecrets(secret(), oldSecret, Instant.now().minusMillis(1));
+
+        assertThat(jwtTokenUtil.validateToken(oldToken)).isFalse();
+        assertThatThrownBy(() -> jwtTokenUtil.extractAllClaims(oldToken)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void checkSecret_RejectsShortKeys() {
+        String shortSecret = Base64.getEncoder().encodeToString(new byte[16]);
+
+        assertThatThrownBy(() -> JwtTokenUtil.checkSecret(shortSecret)).isInstanceOf(WeakKeyException.class);
+    }
+
+    private static String secret() {
+        byte[] bytes = new byte[64];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,103 @@
+package ge.croco.user;
+
+import com.hazelcast.core.HazelcastInstance;
+import ge.croco.user.cache.CachedPrincipal;
+import ge.croco.user.cache.PrincipalCache;
+import ge.croco.user.cache.Tombstone;
+import ge.croco.user.cache.TwoTierCacheManager;
+import ge.croco.user.config.CacheConfig;
+import ge.croco.user.enums.Role;
+import ge.croco.user.model.UserDetails;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrincipalCacheTest {
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private static List<HazelcastInstance> members;
+    private static TwoTierCacheManager cacheManagerA;
+    private static TwoTierCacheManager cacheManagerB;
+
+    @BeforeAll
+    static void startMembers() {
+        members = HazelcastTestMembers.start(2);
+        cacheManagerA = HazelcastTestMembers.cacheManager(members.get(0), new SimpleMeterRegistry());
+        cacheManagerB = HazelcastTestMembers.cacheManager(members.get(1), new SimpleMeterRegistry());
+    }
+
+    @AfterAll
+    static void stopMembers() {
+        HazelcastTestMembers.shutdown(members);
+    }
+
+    @Test
+    void writeDuringLoad_StaleFillDoesNotReplaceWrittenPrincipal() {
+        long id = IDS.incrementAndGet();
+        String username = "user" + id;
+        PrincipalCache principalCache = new PrincipalCache(cacheManagerA);
+        UserDetails before = user(id, username, EnumSet.of(Role.USER, Role.ADMIN), 0L);
+        UserDetails after = user(id, username, EnumSet.of(Role.USER), 1L);
+
+        // The roles change commits between the read and the fill
+        Optional<CachedPrincipal> loaded = principalCache.get(username, () -> {
+            principalCache.putAfterCommit(after, username);
+            return Optional.of(before);
+        });
+
+        assertThat(loaded).contains(CachedPrincipal.of(before));
+        assertThat(principalCache.get(username, Optional::empty)).contains(CachedPrincipal.of(after));
+    }
+
+    @Test
+    void rename_PreviousUsernameTombstonedAndLoadedWithoutCaching() {
+        long id = IDS.incrementAndGet();
+        String previous = "user" + id;
+        String renamed = "renamed" + id;
+        PrincipalCache principalCache = new PrincipalCache(cacheManagerA);
+        principalCache.get(previous, () -> Optional.of(user(id, previous, EnumSet.of(Role.USER), 0L)));
+
+        principalCache.putAfterCommit(user(id, renamed, EnumSet.of(Role.USER), 1L), previous);
+
+        assertThat(principalCache.get(previous, Optional::empty)).isEmpty();
+        // Someone else takes the freed username, it is served from the loader while the tombstone lasts
+        UserDetails newcomer = user(IDS.incrementAndGet(), previous, EnumSet.of(Role.USER), 0L);
+        assertThat(principalCache.get(previous, () -> Optional.of(newcomer))).contains(CachedPrincipal.of(newcomer));
+        assertThat(members.get(0).getMap(CacheConfig.PRINCIPAL_CACHE).get(previous)).isEqualTo(Tombstone.INSTANCE);
+        assertThat(principalCache.get(renamed, Optional::empty)).contains(new CachedPrincipal(id, Role.USER.getMask(), 1L));
+    }
+
+    @Test
+    void writeOnOneMember_OtherMemberServesItWithoutLoading() throws InterruptedException {
+        long id = IDS.incrementAndGet();
+        String username = "user" + id;
+        PrincipalCache principalCacheA = new PrincipalCache(cacheManagerA);
+        PrincipalCache principalCacheB = new PrincipalCache(cacheManagerB);
+        AtomicInteger loads = new AtomicInteger();
+        principalCacheB.get(username, () -> {
+            loads.incrementAndGet();
+            return Optional.of(user(id, username, EnumSet.of(Role.USER), 0L));
+        });
+
+        principalCacheA.putAllAfterCommit(List.of(user(id, username, EnumSet.of(Role.MODERATOR), 1L)));
+
+        HazelcastTestMembers.await(() -> principalCacheB.get(username, Optional::empty)
+                .map(CachedPrincipal::version).orElse(-1L) == 1L);
+        assertThat(loads).hasValue(1);
+    }
+
+    private static UserDetails user(long id, String username, Set<Role> roles, long version) {
+        return new UserDetails(id, username, username + "@test.com", roles, version);
+    }
+}
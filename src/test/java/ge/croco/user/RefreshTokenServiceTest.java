@@ -0,0 +1,127 @@
+package ge.croco.user;
+
+import com.hazelcast.core.HazelcastInstance;
+import ge.croco.user.domain.RefreshToken;
+import ge.croco.user.model.RefreshSession;
+import ge.croco.user.repository.RefreshTokenRepository;
+import ge.croco.user.service.RefreshTokenService;
+import ge.croco.user.util.TokenDigest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RefreshTokenServiceTest {
+
+    private static List<HazelcastInstance> members;
+
+    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeAll
+    static void startMember() {
+        members = HazelcastTestMembers.start(1);
+    }
+
+    @AfterAll
+    static void stopMember() {
+        HazelcastTestMembers.shutdown(members);
+    }
+
+    @BeforeEach
+    void setUp() {
+        members.get(0).getMap(RefreshTokenService.REFRESH_TOKENS).clear();
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        refreshTokenService = new RefreshTokenService(members.get(0), refreshTokenRepository, 60000);
+    }
+
+    @Test
+    void issuedToken_CanBeConsumedOnce() {
+        String refreshToken = refreshTokenService.issue(7L);
+
+        Optional<RefreshSession> first = refreshTokenService.consume(refreshToken);
+        Optional<RefreshSession> reused = refreshTokenService.consume(refreshToken);
+
+        assertThat(first).map(RefreshSession::getUserId).contains(7L);
+        assertThat(reused).isEmpty();
+        verify(refreshTokenRepository).save(any(RefreshToken.class));
+        verify(refreshTokenRepository).deleteByTokenHash(TokenDigest.sha256(refreshToken));
+    }
+
+    @Test
+    void sessionLostFromHazelcast_FallsBackToDatabaseOnce() {
+        String refreshToken = refreshTokenService.issue(7L);
+        String tokenHash = TokenDigest.sha256(refreshToken);
+        members.get(0).getMap(RefreshTokenService.REFRESH_TOKENS).clear();
+        when(refreshTokenRepository.findById(tokenHash))
+                .thenReturn(Optional.of(token(tokenHash, 7L, Instant.now().plusSeconds(60))));
+        // The delete count decides which of two concurrent uses wins
+        when(refreshTokenRepository.deleteByTokenHash(tokenHash)).thenReturn(1, 0);
+
+        assertThat(refreshTokenService.consume(refreshToken)).map(RefreshSession::getUserId).contains(7L);
+        assertThat(refreshTokenService.consume(refreshToken)).isEmpty();
+    }
+
+    @Test
+    void expiredToken_IsRejected() {
+        String refreshToken = "expired";
+        String tokenHash = TokenDigest.sha256(refreshToken);
+        when(refreshTokenRepository.findById(tokenHash))
+                .thenReturn(Optional.of(token(tokenHash, 7L, Instant.now().minusSeconds(1))));
+        when(refreshTokenRepository.deleteByTokenHash(tokenHash)).thenReturn(1);
+
+        assertThat(refreshTokenService.consume(refreshToken)).isEmpty();
+    }
+
+    @Test
+    void revokeAll_RemovesOnlyThatUsersSessions() {
+        String first = refreshTokenService.issue(1L);
+        String second = refreshTokenService.issue(1L);
+        String other = refreshTokenService.issue(2L);
+
+        refreshTokenService.revokeAll(1L);
+
+        assertThat(refreshTokenService.consume(first)).isEmpty();
+        assertThat(refreshTokenService.consume(second)).isEmpty();
+        assertThat(refreshTokenService.consume(other)).map(RefreshSession::getUserId).contains(2L);
+        verify(refreshTokenRepository).deleteByUserId(1L);
+    }
+
+    @Test
+    void revokeAllForMany_RemovesEverySelectedUsersSessions() {
+        String first = refreshTokenService.issue(1L);
+        String second = refreshTokenService.issue(2L);
+        String other = refreshTokenService.issue(3L);
+
+        refreshTokenService.revokeAll(List.of(1L, 2L));
+
+        assertThat(refreshTokenService.consume(first)).isEmpty();
+        assertThat(refreshTokenService.consume(second)).isEmpty();
+        assertThat(refreshTokenService.consume(other)).isPresent();
+    }
+
+    @Test
+    void purgeExpired_DeletesExpiredRows() {
+        refreshTokenService.purgeExpired();
+
+        verify(refreshTokenRepository).deleteExpired(any(Instant.class));
+    }
+
+    private static RefreshToken token(String tokenHash, Long userId, Instant expiresAt) {
+        return RefreshToken.builder()
+                .tokenHash(tokenHash)
+                .userId(userId)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
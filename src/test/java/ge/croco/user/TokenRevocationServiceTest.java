@@ -0,0 +1,80 @@
+package ge.croco.user;
+
+import com.hazelcast.core.HazelcastInstance;
+import ge.croco.user.security.ParsedToken;
+import ge.croco.user.service.TokenRevocationService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenRevocationServiceTest {
+
+    private static List<HazelcastInstance> members;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeAll
+    static void startMember() {
+        members = HazelcastTestMembers.start(1);
+    }
+
+    @AfterAll
+    static void stopMember() {
+        HazelcastTestMembers.shutdown(members);
+    }
+
+    @BeforeEach
+    void setUp() {
+        members.get(0).getMap(TokenRevocationService.REVOKED_TOKENS).clear();
+        tokenRevocationService = new TokenRevocationService(members.get(0), 1800000, 1000, 0.01);
+    }
+
+    @Test
+    void revokedToken_IsRejectedUntilItExpires() {
+        ParsedToken token = token("token-1", 1L, Instant.now());
+
+        tokenRevocationService.revokeToken("token-1", token.expiresAt());
+
+        assertThat(tokenRevocationService.isRevoked(token)).isTrue();
+        assertThat(tokenRevocationService.isRevoked(token("token-2", 1L, Instant.now()))).isFalse();
+    }
+
+    @Test
+    void tokenIssuedInTheRevocationSecond_OnlyRejectedWhenIssuedBefore() throws InterruptedException {
+        // Start early in a second, so the revocation and both tokens fall into the same one
+        while (Instant.now().getNano() > 800_000_000) {
+            Thread.sleep(1);
+        }
+        ParsedToken issuedBefore = token("before", 1L, Instant.now());
+        Thread.sleep(2);
+
+        tokenRevocationService.revokeUser(1L);
+        Thread.sleep(2);
+        ParsedToken issuedAfter = token("after", 1L, Instant.now());
+
+        assertThat(issuedAfter.issuedAt().getEpochSecond()).isEqualTo(issuedBefore.issuedAt().getEpochSecond());
+        assertThat(tokenRevocationService.isRevoked(issuedBefore)).isTrue();
+        assertThat(tokenRevocationService.isRevoked(issuedAfter)).isFalse();
+    }
+
+    @Test
+    void revokeUsers_RejectsEverySelectedUsersTokens() {
+        Instant issuedAt = Instant.now().minusSeconds(1);
+
+        tokenRevocationService.revokeUsers(List.of(1L, 2L));
+
+        assertThat(tokenRevocationService.isRevoked(token("a", 1L, issuedAt))).isTrue();
+        assertThat(tokenRevocationService.isRevoked(token("b", 2L, issuedAt))).isTrue();
+        assertThat(tokenRevocationService.isRevoked(token("c", 3L, issuedAt))).isFalse();
+    }
+
+    private static ParsedToken token(String tokenId, Long userId, Instant issuedAt) {
+        return new ParsedToken(tokenId, "user-" + userId, userId, List.of("ROLE_USER"), issuedAt, issuedAt.plusSeconds(1800));
+    }
+}
@@ -0,0 +1,83 @@
+package ge.croco.user;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.replicatedmap.ReplicatedMap;
+import ge.croco.user.service.TokenVersionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TokenVersionServiceTest {
+
+    private final Map<Long, Long> entries = new HashMap<>();
+    private TokenVersionService tokenVersionService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReplicatedMap<Long, Long> map = mock(ReplicatedMap.class);
+        when(map.get(any())).thenAnswer(invocation -> entries.get(invocation.<Long>getArgument(0)));
+        when(map.put(any(), any(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .thenAnswer(invocation -> entries.put(invocation.getArgument(0), invocation.getArgument(1)));
+        HazelcastInstance hazelcastInstance = mock(HazelcastInstance.class);
+        when(hazelcastInstance.<Long, Long>getReplicatedMap(TokenVersionService.TOKEN_NOT_BEFORE)).thenReturn(map);
+
+        tokenVersionService = new TokenVersionService(hazelcastInstance, 1800000);
+    }
+
+    @Test
+    void tokenIssuedBeforeInvalidation_IsRejected() {
+        Instant issuedAt = Instant.now().minusSeconds(1);
+
+        tokenVersionService.invalidate(1L);
+
+        assertThat(tokenVersionService.isCurrent(1L, issuedAt)).isFalse();
+        assertThat(tokenVersionService.isCurrent(2L, issuedAt)).isTrue();
+    }
+
+    @Test
+    void tokenIssuedAfterInvalidation_IsAccepted() {
+        tokenVersionService.invalidate(1L);
+
+        assertThat(tokenVersionService.isCurrent(1L, Instant.now().plusMillis(1))).isTrue();
+    }
+
+    @Test
+    void invalidationAfterEntryExpired_StillRejectsOlderTokens() throws InterruptedException {
+        tokenVersionService.invalidate(1L);
+        Thread.sleep(2);
+        Instant issuedBetween = Instant.now();
+        Thread.sleep(2);
+        entries.clear(); // TTL passed
+
+        tokenVersionService.invalidate(1L);
+
+        assertThat(tokenVersionService.isCurrent(1L, issuedBetween)).isFalse();
+    }
+
+    @Test
+    void invalidation_NeverMovesBackwards() {
+        long future = System.currentTimeMillis() + 60000; // written by a member whose clock runs ahead
+        entries.put(1L, future);
+
+        tokenVersionService.invalidate(1L);
+
+        assertThat(entries.get(1L)).isEqualTo(future);
+    }
+
+    @Test
+    void unknownUser_IsRejected() {
+        assertThat(tokenVersionService.isCurrent(null, Instant.now())).isFalse();
+    }
+}
@@ -0,0 +1,178 @@
+package ge.croco.user;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.topic.ITopic;
+import ge.croco.user.cache.CacheInvalidation;
+import ge.croco.user.cache.TwoTierCache;
+import ge.croco.user.cache.TwoTierCacheManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TwoTierCacheTest {
+
+    private static final String CACHE = "two-tier-test";
+
+    private static List<HazelcastInstance> members;
+    private static TwoTierCacheManager cacheManagerA;
+    private static TwoTierCacheManager cacheManagerB;
+
+    private Cache cacheA;
+    private Cache cacheB;
+
+    @BeforeAll
+    static void startMembers() {
+        members = HazelcastTestMembers.start(2);
+        cacheManagerA = HazelcastTestMembers.cacheManager(members.get(0), new SimpleMeterRegistry());
+        cacheManagerB = HazelcastTestMembers.cacheManager(members.get(1), new SimpleMeterRegistry());
+    }
+
+    @AfterAll
+    static void stopMembers() {
+        HazelcastTestMembers.shutdown(members);
+    }
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        cacheA = cacheManagerA.getCache(CACHE);
+        cacheB = cacheManagerB.getCache(CACHE);
+        cacheA.clear();
+        HazelcastTestMembers.await(() -> cacheB.get(1L) == null);
+    }
+
+    @Test
+    void concurrentPutIfAbsentAcrossMembers_OneWinnerSeenEverywhere() throws Exception {
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Object> returned = new ArrayList<>();
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Cache.ValueWrapper>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                Cache cache = i % 2 == 0 ? cacheA : cacheB;
+                String value = "value-" + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    cache.get(1L); // Concurrent readers, so L1 fills race with the writes
+                    return cache.putIfAbsent(1L, value);
+                }));
+            }
+            start.countDown();
+            for (Future<Cache.ValueWrapper> future : futures) {
+                Cache.ValueWrapper existing = future.get(10, TimeUnit.SECONDS);
+                returned.add(existing == null ? null : existing.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Object winner = cacheA.get(1L).get();
+        assertThat(returned).containsOnlyOnce((Object) null);
+        assertThat(returned).filteredOn(value -> value != null).containsOnly(winner);
+        HazelcastTestMembers.await(() -> winner.equals(cacheB.get(1L).get()));
+    }
+
+    @Test
+    void evictAll_RemovesFewAndManyKeysOnEveryMember() throws InterruptedException {
+        List<Long> few = LongStream.rangeClosed(1, 2).boxed().toList();
+        List<Long> many = LongStream.rangeClosed(1000, 1299).boxed().toList(); // Above the predicate threshold
+        Stream.concat(few.stream(), many.stream()).forEach(key -> cacheA.put(key, "value-" + key));
+        Stream.concat(few.stream(), many.stream()).forEach(cacheB::get); // Fill L1 on the other member
+
+        ((TwoTierCache) cacheA).evictAll(few);
+        ((TwoTierCache) cacheA).evictAll(many);
+
+        assertThat(Stream.concat(few.stream(), many.stream()).map(cacheA::get)).containsOnlyNulls();
+        HazelcastTestMembers.await(() -> Stream.concat(few.stream(), many.stream()).allMatch(key -> cacheB.get(key) == null));
+    }
+
+    @Test
+    void invalidationDuringRemoteRead_LocalNotFilledWithStaleValue() {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder().build();
+        Cache remote = mock(Cache.class);
+        TwoTierCache cache = new TwoTierCache(CACHE, local, remote, keys -> {
+        }, new SimpleMeterRegistry());
+        // A write lands between the L2 read and the L1 fill
+        when(remote.get(1L)).thenAnswer(invocation -> {
+            cache.evict(1L);
+            return new SimpleValueWrapper("stale");
+        });
+        when(remote.get(2L)).thenReturn(new SimpleValueWrapper("current"));
+
+        assertThat(cache.get(1L).get()).isEqualTo("stale");
+        assertThat(cache.get(2L).get()).isEqualTo("current");
+
+        assertThat(local.getIfPresent(1L)).isNull();
+        assertThat(local.getIfPresent(2L)).isEqualTo("current");
+    }
+
+    @Test
+    void ownInvalidations_SkippedByThePublishingMember() throws InterruptedException {
+        IMap<Object, Object> map = members.get(0).getMap(CACHE);
+        map.set(1L, "value-1");
+        map.set(2L, "value-2");
+        cacheA.get(1L); // Fill L1
+        cacheA.get(2L);
+        // Change L2 behind the cache's back, only an invalidation makes member A read it again
+        map.set(1L, "changed");
+        map.set(2L, "changed");
+
+        UUID memberA = members.get(0).getCluster().getLocalMember().getUuid();
+        ITopic<CacheInvalidation> topic = members.get(0).getTopic(TwoTierCacheManager.INVALIDATION_TOPIC);
+        topic.publish(new CacheInvalidation(memberA, CACHE, List.of(1L)));
+        topic.publish(new CacheInvalidation(UUID.randomUUID(), CACHE, List.of(2L))); // Delivered after the first
+
+        HazelcastTestMembers.await(() -> "changed".equals(cacheA.get(2L).get()));
+        assertThat(cacheA.get(1L).get()).isEqualTo("value-1");
+    }
+
+    @Test
+    void putIfAbsent_FillsWithoutBroadcast_WritesAndEvictionsBroadcast() {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder().build();
+        List<List<Object>> published = new ArrayList<>();
+        TwoTierCache cache = new TwoTierCache(CACHE, local, mock(Cache.class), published::add, new SimpleMeterRegistry());
+        local.put(1L, "expired-in-l2");
+
+        assertThat(cache.putIfAbsent(1L, "filled")).isNull();
+        assertThat(local.getIfPresent(1L)).isNull();
+        assertThat(published).isEmpty();
+
+        cache.put(2L, "written");
+        cache.evict(3L);
+        assertThat(published).containsExactly(List.of(2L), List.of(3L));
+    }
+
+    @Test
+    void replace_InvalidatesOtherMembersLocalEntryOnlyWhenReplaced() throws InterruptedException {
+        cacheA.put(1L, "value-1");
+        HazelcastTestMembers.await(() -> "value-1".equals(cacheB.get(1L).get()));
+
+        assertThat(((TwoTierCache) cacheA).replace(1L, "other", "value-2")).isFalse();
+        assertThat(cacheA.get(1L).get()).isEqualTo("value-1");
+
+        assertThat(((TwoTierCache) cacheA).replace(1L, "value-1", "value-2")).isTrue();
+        assertThat(cacheA.get(1L).get()).isEqualTo("value-2");
+        HazelcastTestMembers.await(() -> "value-2".equals(cacheB.get(1L).get()));
+    }
+}
@@ -0,0 +1,225 @@
+package ge.croco.user;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import ge.croco.user.cache.CachedUser;
+import ge.croco.user.cache.Tombstone;
+import ge.croco.user.cache.TwoTierCacheManager;
+import ge.croco.user.cache.UserCache;
+import ge.croco.user.config.CacheConfig;
+import ge.croco.user.enums.Role;
+import ge.croco.user.model.UserDetails;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UserCacheTest {
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private static List<HazelcastInstance> members;
+    private static TwoTierCacheManager cacheManagerA;
+    private static TwoTierCacheManager cacheManagerB;
+
+    private MeterRegistry registryA;
+    private MeterRegistry registryB;
+    private UserCache userCacheA;
+    private UserCache userCacheB;
+
+    @BeforeAll
+    static void startMembers() {
+        members = HazelcastTestMembers.start(2);
+        cacheManagerA = HazelcastTestMembers.cacheManager(members.get(0), new SimpleMeterRegistry());
+        cacheManagerB = HazelcastTestMembers.cacheManager(members.get(1), new SimpleMeterRegistry());
+    }
+
+    @AfterAll
+    static void stopMembers() {
+        HazelcastTestMembers.shutdown(members);
+    }
+
+    @BeforeEach
+    void setUp() {
+        registryA = new SimpleMeterRegistry();
+        registryB = new SimpleMeterRegistry();
+        userCacheA = userCache(cacheManagerA, members.get(0), registryA, 1.0, 2000, 40000);
+        userCacheB = userCache(cacheManagerB, members.get(1), registryB, 1.0, 2000, 40000);
+    }
+
+    @Test
+    void concurrentGetsOnOneMember_LoadOnce() throws Exception {
+        long id = IDS.incrementAndGet();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<UserDetails>> loader = slowLoader(id, loads, 200);
+
+        List<Optional<UserDetails>> results = runConcurrently(16, i -> () -> userCacheA.get(id, loader));
+
+        assertThat(loads).hasValue(1);
+        assertThat(results).allSatisfy(result -> assertThat(result).contains(user(id, "user" + id)));
+        assertThat(coalesced(registryA, "local")).isPositive();
+    }
+
+    @Test
+    void concurrentGetsAcrossMembers_LoadOnce() throws Exception {
+        long id = IDS.incrementAndGet();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<UserDetails>> loader = slowLoader(id, loads, 300);
+
+        List<Optional<UserDetails>> results = runConcurrently(16,
+                i -> () -> (i % 2 == 0 ? userCacheA : userCacheB).get(id, loader));
+
+        assertThat(loads).hasValue(1);
+        assertThat(results).allSatisfy(result -> assertThat(result).contains(user(id, "user" + id)));
+        assertThat(coalesced(registryA, "cluster") + coalesced(registryB, "cluster")).isPositive();
+    }
+
+    @Test
+    void lockHeldTooLong_WaiterLoadsItself() {
+        long id = IDS.incrementAndGet();
+        AtomicInteger loads = new AtomicInteger();
+        UserCache impatient = userCache(cacheManagerA, members.get(0), registryA, 1.0, 100, 40000);
+        IMap<Long, Boolean> locks = members.get(1).getMap(UserCache.LOAD_LOCKS);
+
+        locks.lock(id);
+        try {
+            assertThat(impatient.get(id, slowLoader(id, loads, 0))).contains(user(id, "user" + id));
+        } finally {
+            locks.unlock(id);
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadOutlivesLockLease_StillReturnsResultToAllWaiters() throws Exception {
+        long id = IDS.incrementAndGet();
+        AtomicInteger loads = new AtomicInteger();
+        UserCache shortLease = userCache(cacheManagerA, members.get(0), registryA, 1.0, 2000, 100);
+        Supplier<Optional<UserDetails>> loader = slowLoader(id, loads, 500);
+
+        List<Optional<UserDetails>> results = runConcurrently(4, i -> () -> shortLease.get(id, loader));
+
+        assertThat(results).allSatisfy(result -> assertThat(result).contains(user(id, "user" + id)));
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void entryCloseToExpiry_IsRefreshedEarly() {
+        long id = IDS.incrementAndGet();
+        Cache cache = cacheManagerA.getCache(CacheConfig.USER_CACHE);
+        // A load time this long makes the refresh all but certain while the entry is still valid
+        cache.put(id, new CachedUser(user(id, "stale"), System.currentTimeMillis() + 60000, 1_000_000_000L));
+
+        Optional<UserDetails> result = userCacheA.get(id, () -> Optional.of(user(id, "fresh")));
+
+        assertThat(result).contains(user(id, "fresh"));
+        assertThat(cache.get(id, CachedUser.class).user().getUsername()).isEqualTo("fresh");
+        assertThat(registryA.get("cache.refreshes.early").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void earlyRefreshDisabled_ServesCachedEntry() {
+        long id = IDS.incrementAndGet();
+        AtomicInteger loads = new AtomicInteger();
+        UserCache noEarlyRefresh = userCache(cacheManagerA, members.get(0), registryA, 0, 2000, 40000);
+        cacheManagerA.getCache(CacheConfig.USER_CACHE)
+                .put(id, new CachedUser(user(id, "cached"), System.currentTimeMillis() + 60000, 1_000_000_000L));
+
+        assertThat(noEarlyRefresh.get(id, slowLoader(id, loads, 0))).contains(user(id, "cached"));
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void earlyRefresh_DoesNotOverwriteConcurrentWrite() {
+        long id = IDS.incrementAndGet();
+        Cache cache = cacheManagerA.getCache(CacheConfig.USER_CACHE);
+        cache.put(id, new CachedUser(user(id, "stale"), System.currentTimeMillis() + 60000, 1_000_000_000L));
+
+        userCacheA.get(id, () -> {
+            // A writer commits while the refresh is loading
+            cache.put(id, new CachedUser(user(id, "written"), System.currentTimeMillis() + 60000, 0));
+            return Optional.of(user(id, "refreshed"));
+        });
+
+        assertThat(cache.get(id, CachedUser.class).user().getUsername()).isEqualTo("written");
+    }
+
+    @Test
+    void tombstone_ReturnsEmptyWithoutLoading() {
+        long id = IDS.incrementAndGet();
+        AtomicInteger loads = new AtomicInteger();
+        cacheManagerA.getCache(CacheConfig.USER_CACHE).put(id, Tombstone.INSTANCE);
+
+        assertThat(userCacheB.get(id, slowLoader(id, loads, 0))).isEmpty();
+        assertThat(loads).hasValue(0);
+    }
+
+    private static UserCache userCache(TwoTierCacheManager cacheManager, HazelcastInstance member, MeterRegistry registry,
+                                       double earlyRefreshBeta, long lockWaitMillis, long lockLeaseMillis) {
+        return new UserCache(cacheManager, member, registry, 1800, 0.1, earlyRefreshBeta, lockWaitMillis, lockLeaseMillis);
+    }
+
+    private static Supplier<Optional<UserDetails>> slowLoader(long id, AtomicInteger loads, long millis) {
+        return () -> {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(user(id, "user" + id));
+        };
+    }
+
+    private static UserDetails user(long id, String username) {
+        return new UserDetails(id, username, username + "@test.com", EnumSet.of(Role.USER), 0L);
+    }
+
+    private static double coalesced(MeterRegistry registry, String scope) {
+        return registry.get("cache.loads.coalesced").tag("scope", scope).counter().count();
+    }
+
+    // Starts all callers at once and returns their results in order
+    private static <T> List<T> runConcurrently(int callers, IntFunction<Callable<T>> caller) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>(callers);
+            for (int i = 0; i < callers; i++) {
+                Callable<T> call = caller.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>(callers);
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
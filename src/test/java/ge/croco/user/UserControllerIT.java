@@ -1,6 +1,8 @@
 package ge.croco.user;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import ge.croco.user.cache.CachedUser;
+import ge.croco.user.cache.Tombstone;
 import ge.croco.user.domain.User;
 import ge.croco.user.enums.EventType;
 import ge.croco.user.enums.Role;
@@ -20,6 +22,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.test.utils.KafkaTestUtils;
@@ -36,12 +39,16 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.kafka.ConfluentKafkaContainer;
 import org.testcontainers.utility.DockerImageName;
 
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static ge.croco.user.config.CacheConfig.PRINCIPAL_CACHE;
 import static ge.croco.user.config.CacheConfig.USER_CACHE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -119,6 +126,7 @@ public class UserControllerIT {
     void setUp() {
         System.out.println("Before each run");
         cacheManager.getCache(USER_CACHE).clear();
+        cacheManager.getCache(PRINCIPAL_CACHE).clear();
         jdbcTemplate.execute("TRUNCATE TABLE users RESTART IDENTITY CASCADE;");
     }
 
@@ -243,8 +251,9 @@ public class UserControllerIT {
                 .andExpect(jsonPath("$.id").value(userDetails.getId()));
 
         //check if cached data
-        UserDetails cachedUser = cacheManager.getCache(USER_CACHE).get(userDetails.getId(), UserDetails.class);
-        Assertions.assertEquals(userDetails, cachedUser);
+        CachedUser cachedUser = cacheManager.getCache(USER_CACHE).get(userDetails.getId(), CachedUser.class);
+        Assertions.assertNotNull(cachedUser);
+        Assertions.assertEquals(userDetails, cachedUser.user());
 
         System.out.println("getUserByADMIN_ROLE_ReturnUser passed successfully");
     }
@@ -298,8 +307,9 @@ public class UserControllerIT {
                 .andExpect(jsonPath("$.id").value(userDetails.getId()));
 
         //check if cached data
-        UserDetails cachedUser = cacheManager.getCache(USER_CACHE).get(userDetails.getId(), UserDetails.class);
-        Assertions.assertEquals(userDetails, cachedUser);
+        CachedUser cachedUser = cacheManager.getCache(USER_CACHE).get(userDetails.getId(), CachedUser.class);
+        Assertions.assertNotNull(cachedUser);
+        Assertions.assertEquals(userDetails, cachedUser.user());
 
         System.out.println("getUserByUSER_ROLE_WITH_OWN_ID_returnUser passed successfully");
     }
@@ -349,9 +359,10 @@ public class UserControllerIT {
                 .content(objectMapper.writeValueAsBytes(new LoginRequest(changedUsername, changedPassword)))
         ).andExpect(status().isOk());
 
-        //check if evict cached data
-        Cache.ValueWrapper cachedUser = cacheManager.getCache(USER_CACHE).get(user.getId());
-        Assertions.assertNull(cachedUser);
+        //check if updated data written to cache
+        CachedUser cachedUser = cacheManager.getCache(USER_CACHE).get(user.getId(), CachedUser.class);
+        Assertions.assertNotNull(cachedUser);
+        Assertions.assertEquals(changedUsername, cachedUser.user().getUsername());
 
         ConsumerRecord<String, String> record = getLatestRecordForTopic(consumer, KAFKA_TOPIC);
         UserEvent userEvent = objectMapper.readValue(record.value(), UserEvent.class);
@@ -394,11 +405,177 @@ public class UserControllerIT {
 
         Assertions.assertFalse(userRepository.existsById(user.getId()));
 
-        //check if cached data
+        //check if tombstone cached
         Cache.ValueWrapper cachedUser = cacheManager.getCache(USER_CACHE).get(user.getId());
-        Assertions.assertNull(cachedUser);
+        Assertions.assertNotNull(cachedUser);
+        Assertions.assertEquals(Tombstone.INSTANCE, cachedUser.get());
 
         System.out.println("deleteUserByADMIN_ROLE_UserDeleted passed successfully");
     }
 
+    @Test
+    @Order(9)
+    public void bulkDeleteByADMIN_ROLE_SelectingCaller_BadRequest() throws Exception {
+        UserDetails adminUser = userService.createUser(new UserRequest("bulkadmin1", "bulkadmin1@test.com", "TestPassword1!", Set.of(Role.ADMIN)));
+        UserDetails user = userService.createUser(new UserRequest("bulkuser1", "bulkuser1@test.com", "TestPassword1!", Set.of(Role.USER)));
+        JWTResponse jwt = login("bulkadmin1", "TestPassword1!");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/admin/users/bulk-delete")
+                .header("Authorization", "Bearer " + jwt.token())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(new BulkDeleteRequest(List.of(user.getId(), adminUser.getId()), null)))
+        ).andExpect(status().isBadRequest());
+
+        Assertions.assertTrue(userRepository.existsById(adminUser.getId()));
+        Assertions.assertTrue(userRepository.existsById(user.getId()));
+    }
+
+    @Test
+    @Order(10)
+    public void bulkDeleteByADMIN_ROLE_HasRoleAdmin_KeepsCaller() throws Exception {
+        UserDetails adminUser = userService.createUser(new UserRequest("bulkadmin1", "bulkadmin1@test.com", "TestPassword1!", Set.of(Role.ADMIN)));
+        UserDetails otherAdmin = userService.createUser(new UserRequest("bulkadmin2", "bulkadmin2@test.com", "TestPassword1!", Set.of(Role.ADMIN)));
+        JWTResponse jwt = login("bulkadmin1", "TestPassword1!");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/admin/users/bulk-delete")
+                        .header("Authorization", "Bearer " + jwt.token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(new BulkDeleteRequest(null, Role.ADMIN)))
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(1));
+
+        Assertions.assertTrue(userRepository.existsById(adminUser.getId()));
+        Assertions.assertFalse(userRepository.existsById(otherAdmin.getId()));
+    }
+
+    @Test
+    @Order(11)
+    public void bulkDeleteByADMIN_ROLE_HasRoleAcrossChunks_AllDeleted() throws Exception {
+        UserDetails adminUser = userService.createUser(new UserRequest("bulkadmin1", "bulkadmin1@test.com", "TestPassword1!", Set.of(Role.ADMIN)));
+        // More than two chunks of 1000, ids well above what the sequence hands out
+        jdbcTemplate.update("""
+                insert into users (id, username, password, email, roles)
+                select id, 'bulk' || id, 'x', 'bulk' || id || '@test.com', ?
+                from generate_series(1000001, 1002500) id""", Role.MODERATOR.getMask());
+        JWTResponse jwt = login("bulkadmin1", "TestPassword1!");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/admin/users/bulk-delete")
+                        .header("Authorization", "Bearer " + jwt.token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(new BulkDeleteRequest(null, Role.MODERATOR)))
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2500));
+
+        Assertions.assertEquals(1, userRepository.count());
+        Assertions.assertTrue(userRepository.existsById(adminUser.getId()));
+    }
+
+    @Test
+    @Order(12)
+    public void bulkChangeRolesByADMIN_ROLE_GrantAndRevokeOverlap_RoleRevoked() throws Exception {
+        userService.createUser(new UserRequest("bulkadmin1", "bulkadmin1@test.com", "TestPassword1!", Set.of(Role.ADMIN)));
+        UserDetails user = userService.createUser(new UserRequest("bulkuser1", "bulkuser1@test.com", "TestPassword1!", Set.of(Role.USER)));
+        JWTResponse jwt = login("bulkadmin1", "TestPassword1!");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/admin/users/bulk-roles")
+                        .header("Authorization", "Bearer " + jwt.token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(new BulkRoleChangeRequest(List.of(user.getId()), null,
+                                Set.of(Role.USER, Role.MODERATOR), Set.of(Role.USER))))
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(1));
+
+        Assertions.assertEquals(Set.of(Role.MODERATOR), userRepository.findById(user.getId()).orElseThrow().getRoles());
+    }
+
+    @Test
+    @Order(13)
+    public void bulkChangeRolesByADMIN_ROLE_UnchangedRows_NotAffected() throws Exception {
+        userService.createUser(new UserRequest("bulkadmin1", "bulkadmin1@test.com", "TestPassword1!", Set.of(Role.ADMIN)));
+        UserDetails user = userService.createUser(new UserRequest("bulkuser1", "bulkuser1@test.com", "TestPassword1!", Set.of(Role.USER)));
+        UserDetails moderator = userService.createUser(new UserRequest("bulkuser2", "bulkuser2@test.com", "TestPassword1!", Set.of(Role.USER, Role.MODERATOR)));
+        JWTResponse jwt = login("bulkadmin1", "TestPassword1!");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/admin/users/bulk-roles")
+                        .header("Authorization", "Bearer " + jwt.token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(new BulkRoleChangeRequest(List.of(user.getId(), moderator.getId()), null,
+                                Set.of(Role.MODERATOR), null)))
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(1));
+
+        Assertions.assertEquals(Set.of(Role.USER, Role.MODERATOR), userRepository.findById(user.getId()).orElseThrow().getRoles());
+    }
+
+    @Test
+    @Order(14)
+    public void bulkChangeRolesByADMIN_ROLE_RevokeAdminFromAll_CallerKeepsAdmin() throws Exception {
+        UserDetails adminUser = userService.createUser(new UserRequest("bulkadmin1", "bulkadmin1@test.com", "TestPassword1!", Set.of(Role.ADMIN)));
+        UserDetails otherAdmin = userService.createUser(new UserRequest("bulkadmin2", "bulkadmin2@test.com", "TestPassword1!", Set.of(Role.ADMIN, Role.USER)));
+        JWTResponse jwt = login("bulkadmin1", "TestPassword1!");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/admin/users/bulk-roles")
+                        .header("Authorization", "Bearer " + jwt.token())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(new BulkRoleChangeRequest(null, Role.ADMIN, null, Set.of(Role.ADMIN))))
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(1));
+
+        Assertions.assertEquals(Set.of(Role.ADMIN), userRepository.findById(adminUser.getId()).orElseThrow().getRoles());
+        Assertions.assertEquals(Set.of(Role.USER), userRepository.findById(otherAdmin.getId()).orElseThrow().getRoles());
+    }
+
+    @Test
+    @Order(15)
+    public void searchUsersByADMIN_ROLE_RankedExactThenPrefixThenSubstring() throws Exception {
+        userService.createUser(new UserRequest("searchadmin", "searchadmin@test.com", "TestPassword1!", Set.of(Role.ADMIN)));
+        userService.createUser(new UserRequest("mariam", "mariam@test.com", "TestPassword1!", Set.of(Role.USER)));
+        userService.createUser(new UserRequest("maria", "maria@test.com", "TestPassword1!", Set.of(Role.USER)));
+        userService.createUser(new UserRequest("anamaria", "anamaria@test.com", "TestPassword1!", Set.of(Role.USER)));
+        JWTResponse jwt = login("searchadmin", "TestPassword1!");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/admin/users/search")
+                        .header("Authorization", "Bearer " + jwt.token())
+                        .param("q", "Maria")
+                        .param("limit", "10")
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].username").value("maria"))
+                .andExpect(jsonPath("$[1].username").value("mariam"))
+                .andExpect(jsonPath("$[2].username").value("anamaria"));
+    }
+
+    @Test
+    @Order(16)
+    public void searchUsers_PlanBoundsCandidatesWithNearestNeighbourIndexScans() {
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("set enable_seqscan = off");
+                StringBuilder lines = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery("""
+                        explain
+                        (select id from users where lower(username) like '%mar%'
+                         order by lower(username) <-> 'mar' limit 500)""")) {
+                    while (rs.next()) {
+                        lines.append(rs.getString(1)).append('\n');
+                    }
+                } finally {
+                    statement.execute("reset enable_seqscan");
+                }
+                return lines.toString();
+            }
+        });
+
+        assertThat(plan).contains("Limit", "idx_users_username_trgm", "Order By");
+    }
+
+    private JWTResponse login(String username, String password) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post("/api/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(new LoginRequest(username, password)))
+                ).andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readValue(mvcResult.getResponse().getContentAsByteArray(), JWTResponse.class);
+    }
+
 }
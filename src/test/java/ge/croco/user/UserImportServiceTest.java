@@ -0,0 +1,120 @@
+package ge.croco.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ge.croco.user.domain.User;
+import ge.croco.user.enums.EventType;
+import ge.croco.user.enums.ImportFormat;
+import ge.croco.user.enums.ImportStatus;
+import ge.croco.user.model.ImportRecordResult;
+import ge.croco.user.model.ImportReport;
+import ge.croco.user.model.UserDetails;
+import ge.croco.user.repository.UserRepository;
+import ge.croco.user.security.BulkheadPasswordEncoder;
+import ge.croco.user.service.UserEventPublisher;
+import ge.croco.user.service.UserImportServiceImpl;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BulkheadPasswordEncoder passwordEncoder;
+
+    @Mock
+    private UserEventPublisher userEventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private Validator validator;
+
+    private UserImportServiceImpl userImportService;
+
+    @BeforeEach
+    void setUp() {
+        userImportService = new UserImportServiceImpl(userRepository, passwordEncoder, userEventPublisher,
+                transactionTemplate, new ObjectMapper(), validator);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchFails_RowByRowFallbackReportsSavedIds() {
+        String csv = """
+                username,email,password,roles
+                importone,one@test.com,Password1!,USER
+                importtwo,two@test.com,Password2!,USER
+                """;
+        when(passwordEncoder.encodeAll(anyList())).thenReturn(List.of("hash1", "hash2"));
+        // The failed batch leaves ids and versions on the entities, like Hibernate does before the rollback
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(userRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            long id = 1;
+            for (User user : invocation.<List<User>>getArgument(0)) {
+                user.setId(id++);
+                user.setVersion(0L);
+            }
+            throw new DataIntegrityViolationException("duplicate key");
+        });
+        // Persisting a new entity assigns its id, merging a detached one would return a copy instead
+        AtomicLong sequence = new AtomicLong(100);
+        List<User> saved = new ArrayList<>();
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            saved.add(User.builder().id(user.getId()).version(user.getVersion()).build());
+            return User.builder()
+                    .id(sequence.incrementAndGet())
+                    .username(user.getUsername())
+                    .email(user.getEmail())
+                    .roles(user.getRoles())
+                    .version(0L)
+                    .build();
+        });
+
+        ImportReport report = userImportService.importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+
+        assertThat(report.created()).isEqualTo(2);
+        assertThat(report.results()).extracting(ImportRecordResult::status)
+                .containsOnly(ImportStatus.CREATED);
+        assertThat(report.results()).extracting(ImportRecordResult::id).containsExactly(101L, 102L);
+        assertThat(saved).allSatisfy(user -> {
+            assertThat(user.getId()).isNull();
+            assertThat(user.getVersion()).isNull();
+        });
+
+        ArgumentCaptor<List<UserDetails>> events = ArgumentCaptor.forClass(List.class);
+        verify(userEventPublisher).publishAll(eq(EventType.USER_CREATED), events.capture());
+        assertThat(events.getValue()).extracting(UserDetails::getId).containsExactly(101L, 102L);
+    }
+}
@@ -1,24 +1,46 @@
 package ge.croco.user;
 
+import ge.croco.user.cache.PrincipalCache;
+import ge.croco.user.cache.UserCache;
 import ge.croco.user.domain.User;
 import ge.croco.user.enums.Role;
 import ge.croco.user.exception.UserAlreadyExistsException;
+import ge.croco.user.exception.UserVersionConflictException;
+import ge.croco.user.model.PatchMeRequest;
 import ge.croco.user.model.UpdateMeRequest;
+import ge.croco.user.model.UserDetails;
 import ge.croco.user.model.UserRequest;
 import ge.croco.user.repository.UserRepository;
+import ge.croco.user.service.RefreshTokenService;
+import ge.croco.user.service.TokenRevocationService;
+import ge.croco.user.service.TokenVersionService;
+import ge.croco.user.service.UserEventPublisher;
 import ge.croco.user.service.UserServiceImpl;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLException;
 import java.util.Optional;
 import java.util.Set;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,7 +56,30 @@ public class UserServiceTest {
     private PasswordEncoder passwordEncoder;
 
     @Mock
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private UserEventPublisher userEventPublisher;
+
+    @Mock
+    private TokenVersionService tokenVersionService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private static DataIntegrityViolationException uniqueViolation(String constraintName) {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException("duplicate key"), constraintName));
+    }
 
     @Test
     void createUserWithExistingEmail_ThrowsException() {
@@ -44,8 +89,8 @@ public class UserServiceTest {
                 "lasha111",
                 Set.of(Role.ADMIN)
         );
-        //Mock existsByEmail
-        when(userRepository.existsByEmail(userRequest.email())).thenReturn(true);
+        //Mock unique constraint violation on insert
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(uniqueViolation(User.EMAIL_CONSTRAINT));
 
         assertThatThrownBy(() -> userService.createUser(userRequest))
                 .isInstanceOf(UserAlreadyExistsException.class)
@@ -61,18 +106,72 @@ public class UserServiceTest {
                 "lasha111"
         );
 
-        when(userRepository.findById(userId)).thenReturn(
-                Optional.of(User.builder()
-                        .id(userId)
-                        .username("lashabolga1")
-                        .email("lasha@gmail.com")
-                        .build())
-        );
-
-        when(userRepository.existsByUsername(updateMeRequest.username())).thenReturn(true);
+        when(userRepository.updateCredentials(eq(userId), eq(updateMeRequest.username()), eq(updateMeRequest.email()),
+                any(), anyBoolean(), anyLong()))
+                .thenThrow(uniqueViolation(User.USERNAME_CONSTRAINT));
 
-        assertThatThrownBy(() -> userService.updateMe(1L, updateMeRequest))
+        assertThatThrownBy(() -> userService.updateMe(userId, updateMeRequest, null))
                 .isInstanceOf(UserAlreadyExistsException.class)
                 .hasMessage("User " + updateMeRequest.username() + " already exists");
     }
-}
\ No newline at end of file
+
+    @Test
+    void patchMeWithEmailOnly_SkipsPasswordHashing() {
+        Long userId = 1L;
+        User user = User.builder()
+                .id(userId)
+                .username("lashabolga")
+                .email("lasha@gmail.com")
+                .password("hash")
+                .roles(Set.of(Role.USER))
+                .build();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        runTransactionsInline();
+
+        UserDetails userDetails = userService.patchMe(userId, new PatchMeRequest(null, "lasha2@gmail.com", null), null);
+
+        assertThat(userDetails.getEmail()).isEqualTo("lasha2@gmail.com");
+        assertThat(user.getPassword()).isEqualTo("hash");
+        verifyNoInteractions(passwordEncoder, refreshTokenService);
+    }
+
+    @Test
+    void patchMeWithPassword_HashesBeforeTheTransaction() {
+        Long userId = 1L;
+        User user = User.builder()
+                .id(userId)
+                .username("lashabolga")
+                .email("lasha@gmail.com")
+                .password("hash")
+                .roles(Set.of(Role.USER))
+                .build();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(passwordEncoder.encode("lasha222")).thenReturn("new-hash");
+        runTransactionsInline();
+
+        userService.patchMe(userId, new PatchMeRequest(null, null, "lasha222"), null);
+
+        assertThat(user.getPassword()).isEqualTo("new-hash");
+        InOrder order = inOrder(passwordEncoder, transactionTemplate);
+        order.verify(passwordEncoder).encode("lasha222");
+        order.verify(transactionTemplate).execute(any());
+    }
+
+    @Test
+    void updateUserWithStaleVersion_ThrowsConflict() {
+        Long userId = 1L;
+        UserRequest userRequest = new UserRequest("lashabolga", "lasha@gmail.com", "lasha111", Set.of(Role.USER));
+        when(userRepository.updateUser(eq(userId), any(), any(), any(), anyInt(), eq(true), eq(3L)))
+                .thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        assertThatThrownBy(() -> userService.updateUser(userId, userRequest, 3L))
+                .isInstanceOf(UserVersionConflictException.class);
+        verifyNoInteractions(userEventPublisher, tokenVersionService, refreshTokenService);
+    }
+
+    private void runTransactionsInline() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+}